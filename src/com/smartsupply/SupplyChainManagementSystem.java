@@ -9,6 +9,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Scanner;
 
+import com.smartsupply.event.EventPublisher;
 import com.smartsupply.exception.AuthenticationException;
 import com.smartsupply.exception.InventoryException;
 import com.smartsupply.model.Admin;
@@ -20,11 +21,18 @@ import com.smartsupply.model.Retailer;
 import com.smartsupply.model.Role;
 import com.smartsupply.model.Supplier;
 import com.smartsupply.model.User;
+import com.smartsupply.model.User.UserSession;
 import com.smartsupply.model.WarehouseManager;
 import com.smartsupply.service.Analytics;
 import com.smartsupply.service.AnalyticsImpl;
 import com.smartsupply.service.Authentication;
+import com.smartsupply.service.FulfillmentEngine;
+import com.smartsupply.service.InventoryJournal;
+import com.smartsupply.service.LowStockAlertCoalescer;
 import com.smartsupply.service.NotificationService;
+import com.smartsupply.service.OrderStore;
+import com.smartsupply.service.ProductCatalog;
+import com.smartsupply.service.ScanPipeline;
 import com.smartsupply.util.BarcodeScanner;
 import com.smartsupply.util.FileHandler;
 import com.smartsupply.util.ReportGenerator;
@@ -36,25 +44,47 @@ import com.smartsupply.util.ReportGenerator;
 public class SupplyChainManagementSystem {
     private Authentication authService;
     private NotificationService notificationService;
+    private LowStockAlertCoalescer lowStockAlerts;
     private Analytics analyticsService;
+    private InventoryJournal inventoryJournal;
     private Map<String, Inventory> inventories;
-    private List<Order> orders;
-    private static User currentUser;
+    private Map<String, ScanPipeline> scanPipelines;
+    private ProductCatalog productCatalog;
+    private OrderStore orderStore;
+    private FulfillmentEngine fulfillmentEngine;
+    private UserSession currentSession;
+    private User currentUser;
     private static final String DATA_DIR = "data";
+    private static final String PRODUCT_CATALOG_FILE = DATA_DIR + File.separator + "products.catalog";
     private static Scanner scanner;
     
     // Default constructor
     public SupplyChainManagementSystem() {
         this.authService = new Authentication(DATA_DIR + File.separator + "users.dat");
         this.notificationService = new NotificationService();
+        this.lowStockAlerts = new LowStockAlertCoalescer(notificationService);
         this.analyticsService = new AnalyticsImpl();
         this.inventories = new HashMap<>();
-        this.orders = new ArrayList<>();
+        this.scanPipelines = new HashMap<>();
+        this.productCatalog = new ProductCatalog();
+        this.orderStore = new OrderStore();
+        this.fulfillmentEngine = new FulfillmentEngine();
         scanner = new Scanner(System.in);
         
         // Ensure data directory exists
         FileHandler.ensureDirectoryExists(DATA_DIR);
         
+        // Load the saved products first, so product changes journaled since the catalog was saved win
+        productCatalog.load(PRODUCT_CATALOG_FILE);
+        
+        // Rebuild stock levels from the inventory journal
+        this.inventoryJournal = new InventoryJournal(DATA_DIR);
+        this.inventories.putAll(inventoryJournal.recover());
+        for (Inventory inventory : inventories.values()) {
+            productCatalog.attach(inventory);
+            lowStockAlerts.attach(inventory);
+        }
+        
         // Initialize with sample data
         initializeSampleData();
     }
@@ -120,8 +150,8 @@ public class SupplyChainManagementSystem {
             storeInventory.setReorderThreshold(tablet, 4);
             
             // Add inventories to the system
-            inventories.put("WH-001", warehouseInventory);
-            inventories.put("ST-001", storeInventory);
+            registerInventory(warehouseInventory);
+            registerInventory(storeInventory);
             
             // Register barcodes
             BarcodeScanner.registerBarcode(laptop.getBarcode(), laptop);
@@ -137,7 +167,7 @@ public class SupplyChainManagementSystem {
                                  "789 Retail Ave.", new Date(System.currentTimeMillis() + 86400000));
             order.updateStatus(OrderStatus.PROCESSING);
             
-            orders.add(order);
+            orderStore.addOrder(order);
             
             // Subscribe users to notifications
             notificationService.subscribe(admin);
@@ -161,6 +191,17 @@ public class SupplyChainManagementSystem {
         
         while (running) {
             try {
+                // Let queued domain events reach the console before the next menu
+                EventPublisher.flush();
+                notificationService.flush();
+                
+                // A session can expire or be ended from another terminal between menus
+                if (currentSession != null && authService.getSession(currentSession.getToken()) == null) {
+                    System.out.println("\nYour session has expired. Please log in again.");
+                    currentSession = null;
+                    currentUser = null;
+                }
+                
                 if (currentUser == null) {
                     // Not logged in
                     showLoginMenu();
@@ -195,9 +236,26 @@ public class SupplyChainManagementSystem {
             }
         }
         
+        for (ScanPipeline pipeline : scanPipelines.values()) {
+            pipeline.close();
+        }
+        productCatalog.save(PRODUCT_CATALOG_FILE);
+        inventoryJournal.close();
+        authService.close();
+        lowStockAlerts.close();
+        notificationService.close();
         System.out.println("Thank you for using the Smart Supply Chain Management System.");
     }
     
+    // Method to add an inventory location to the system, journal its stock changes, catalog its products
+    // and watch it for low stock
+    private void registerInventory(Inventory inventory) {
+        inventoryJournal.attach(inventory);
+        productCatalog.attach(inventory);
+        lowStockAlerts.attach(inventory);
+        inventories.put(inventory.getLocationId(), inventory);
+    }
+    
     // Method to show login menu
     private void showLoginMenu() {
         System.out.println("\n--- Login Menu ---");
@@ -214,9 +272,9 @@ public class SupplyChainManagementSystem {
         String password = scanner.nextLine();
         
         try {
-            User user = authService.login(userId, password);
-            currentUser = user;
-            System.out.println("Login successful. Welcome, " + user.getName() + " (" + user.getRole() + ")");
+            currentSession = authService.login(userId, password);
+            currentUser = currentSession.getUser();
+            System.out.println("Login successful. Welcome, " + currentUser.getName() + " (" + currentUser.getRole() + ")");
         } catch (AuthenticationException e) {
             System.out.println("Login failed: " + e.getMessage());
         }
@@ -587,7 +645,7 @@ public class SupplyChainManagementSystem {
             Inventory inventory = entry.getValue();
             
             double locationValue = inventory.getTotalInventoryValue();
-            int productCount = inventory.getStockLevels().size();
+            int productCount = inventory.getProductCount();
             
             totalValue += locationValue;
             totalProducts += productCount;
@@ -628,7 +686,7 @@ public class SupplyChainManagementSystem {
             Date startDate = dateFormat.parse(startDateStr);
             Date endDate = dateFormat.parse(endDateStr);
             
-            String report = ReportGenerator.generateSalesReport(orders, startDate, endDate);
+            String report = ReportGenerator.generateSalesSummaryReport(orderStore, startDate, endDate);
             System.out.println(report);
             
             // Save the report to file
@@ -760,31 +818,27 @@ public class SupplyChainManagementSystem {
     private void viewSupplierOrders(Supplier supplier) {
         System.out.println("\n--- Supplier Orders ---");
         
-        boolean found = false;
-        
-        for (Order order : orders) {
-            if (supplier.getUserId().equals(order.getSupplierUserId())) {
-                found = true;
-                
-                System.out.println("\nOrder ID: " + order.getOrderId());
-                System.out.println("Status: " + order.getStatus());
-                System.out.println("Placed By: " + order.getPlacedByUserId());
-                System.out.println("Order Date: " + new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(order.getOrderDate()));
-                System.out.println("Delivery Date: " + (order.getDeliveryDate() != null ? 
-                    new SimpleDateFormat("yyyy-MM-dd").format(order.getDeliveryDate()) : "Not set"));
-                System.out.println("Total Amount: $" + String.format("%.2f", order.getTotalAmount()));
-                
-                System.out.println("\nOrder Items:");
-                for (Map.Entry<Product, Integer> item : order.getOrderItems().entrySet()) {
-                    Product product = item.getKey();
-                    int quantity = item.getValue();
-                    System.out.println(String.format("- %s (ID: %s) x %d = $%.2f", 
-                        product.getName(), product.getProductId(), quantity, product.getPrice() * quantity));
-                }
+        List<Order> supplierOrders = orderStore.getOrdersBySupplier(supplier.getUserId());
+        
+        for (Order order : supplierOrders) {
+            System.out.println("\nOrder ID: " + order.getOrderId());
+            System.out.println("Status: " + order.getStatus());
+            System.out.println("Placed By: " + order.getPlacedByUserId());
+            System.out.println("Order Date: " + new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(order.getOrderDate()));
+            System.out.println("Delivery Date: " + (order.getDeliveryDate() != null ? 
+                new SimpleDateFormat("yyyy-MM-dd").format(order.getDeliveryDate()) : "Not set"));
+            System.out.println("Total Amount: $" + String.format("%.2f", order.getTotalAmount()));
+            
+            System.out.println("\nOrder Items:");
+            for (Map.Entry<Product, Integer> item : order.getOrderItems().entrySet()) {
+                Product product = item.getKey();
+                int quantity = item.getValue();
+                System.out.println(String.format("- %s (ID: %s) x %d = $%.2f", 
+                    product.getName(), product.getProductId(), quantity, product.getPrice() * quantity));
             }
         }
         
-        if (!found) {
+        if (supplierOrders.isEmpty()) {
             System.out.println("No orders found for this supplier.");
         }
     }
@@ -794,15 +848,7 @@ public class SupplyChainManagementSystem {
         System.out.println("\n--- Update Product Prices ---");
         
         // Find products supplied by this supplier
-        List<Product> supplierProducts = new ArrayList<>();
-        
-        for (Inventory inventory : inventories.values()) {
-            for (Product product : inventory.getStockLevels().keySet()) {
-                if (supplier.getUserId().equals(product.getSupplierUserId()) && !supplierProducts.contains(product)) {
-                    supplierProducts.add(product);
-                }
-            }
-        }
+        List<Product> supplierProducts = productCatalog.getProductsBySupplier(supplier.getUserId());
         
         if (supplierProducts.isEmpty()) {
             System.out.println("No products found for this supplier.");
@@ -847,14 +893,8 @@ public class SupplyChainManagementSystem {
         System.out.println("\n--- Process Orders ---");
         
         // Find pending orders for this supplier
-        List<Order> supplierOrders = new ArrayList<>();
-        
-        for (Order order : orders) {
-            if (supplier.getUserId().equals(order.getSupplierUserId()) && 
-                (order.getStatus() == OrderStatus.PLACED || order.getStatus() == OrderStatus.PROCESSING)) {
-                supplierOrders.add(order);
-            }
-        }
+        List<Order> supplierOrders = orderStore.getOrdersBySupplier(supplier.getUserId(),
+                                                                    OrderStatus.PLACED, OrderStatus.PROCESSING);
         
         if (supplierOrders.isEmpty()) {
             System.out.println("No pending orders found for processing.");
@@ -905,7 +945,12 @@ public class SupplyChainManagementSystem {
         }
         
         // Update order status
-        selectedOrder.updateStatus(newStatus);
+        OrderStatus oldStatus = selectedOrder.getStatus();
+        if (!selectedOrder.updateStatus(newStatus)) {
+            System.out.println("Order " + selectedOrder.getOrderId() + " cannot change from '" + 
+                             oldStatus + "' to '" + newStatus + "'.");
+            return;
+        }
         
         // Send notification
         notificationService.sendOrderUpdate(selectedOrder, 
@@ -944,12 +989,12 @@ public class SupplyChainManagementSystem {
         // Create a new inventory if it doesn't exist
         if (inventory == null) {
             inventory = new Inventory(warehouseId, "warehouse");
-            inventories.put(warehouseId, inventory);
+            registerInventory(inventory);
             System.out.println("New inventory created for warehouse ID: " + warehouseId);
         }
         
         System.out.println("Warehouse: " + warehouseId + " (" + warehouseManager.getLocation() + ")");
-        System.out.println("Total Items: " + inventory.getStockLevels().size());
+        System.out.println("Total Items: " + inventory.getProductCount());
         System.out.println("Total Value: $" + String.format("%.2f", inventory.getTotalInventoryValue()));
         
         System.out.println("\n1. View Inventory");
@@ -1036,7 +1081,7 @@ public class SupplyChainManagementSystem {
             System.out.print("Enter Supplier ID: ");
             String supplierId = scanner.nextLine();
             
-            selectedProduct = new Product(productId, name, price, "", category, supplierId);
+            selectedProduct = productCatalog.intern(new Product(productId, name, price, "", category, supplierId));
             selectedProduct.generateBarcode();
             selectedProduct.generateQRCode();
             
@@ -1118,7 +1163,7 @@ public class SupplyChainManagementSystem {
         for (int i = 0; i < products.size(); i++) {
             Product product = products.get(i);
             int stock = inventory.getStockCount(product);
-            int threshold = inventory.getReorderThresholds().getOrDefault(product, 0);
+            int threshold = inventory.getReorderThreshold(product);
             System.out.println((i + 1) + ". " + product.getName() + 
                              " (Current stock: " + stock + 
                              ", Reorder threshold: " + threshold + ")");
@@ -1162,14 +1207,14 @@ public class SupplyChainManagementSystem {
             
             for (Product product : lowStockProducts) {
                 int stock = inventory.getStockCount(product);
-                int threshold = inventory.getReorderThresholds().getOrDefault(product, 0);
+                int threshold = inventory.getReorderThreshold(product);
                 
                 System.out.println(String.format("%-40s %-10d %-15d", 
                     product.getName(), stock, threshold));
             }
             
-            // Send notification for low stock items
-            notificationService.sendLowStockAlert(lowStockProducts, inventory.getStockLevels());
+            // Items not alerted yet go into the next low stock digest, already alerted ones are not repeated
+            lowStockAlerts.review(inventory);
         }
     }
     
@@ -1178,13 +1223,7 @@ public class SupplyChainManagementSystem {
         System.out.println("\n--- Receive Shipments ---");
         
         // Find orders with SHIPPED status
-        List<Order> shippedOrders = new ArrayList<>();
-        
-        for (Order order : orders) {
-            if (order.getStatus() == OrderStatus.SHIPPED) {
-                shippedOrders.add(order);
-            }
-        }
+        List<Order> shippedOrders = orderStore.getOrdersByStatus(OrderStatus.SHIPPED);
         
         if (shippedOrders.isEmpty()) {
             System.out.println("No shipments pending for receipt.");
@@ -1210,8 +1249,11 @@ public class SupplyChainManagementSystem {
         
         Order selectedOrder = shippedOrders.get(orderIndex - 1);
         
-        // Update order status
-        selectedOrder.updateStatus(OrderStatus.DELIVERED);
+        // Update order status; another terminal may already have received this shipment
+        if (!selectedOrder.tryTransition(OrderStatus.SHIPPED, OrderStatus.DELIVERED)) {
+            System.out.println("Shipment " + selectedOrder.getOrderId() + " is no longer pending receipt.");
+            return;
+        }
         
         // Add items to inventory
         String warehouseId = warehouseManager.getWarehouseId();
@@ -1247,12 +1289,9 @@ public class SupplyChainManagementSystem {
         // Find orders with PROCESSING status that were placed by retailers
         List<Order> processingOrders = new ArrayList<>();
         
-        for (Order order : orders) {
-            if (order.getStatus() == OrderStatus.PROCESSING) {
-                User placedBy = authService.getUser(order.getPlacedByUserId());
-                if (placedBy != null && placedBy.getRole() == Role.RETAILER) {
-                    processingOrders.add(order);
-                }
+        for (Order order : orderStore.getOrdersByStatus(OrderStatus.PROCESSING)) {
+            if (authService.getRole(order.getPlacedByUserId()) == Role.RETAILER) {
+                processingOrders.add(order);
             }
         }
         
@@ -1270,16 +1309,23 @@ public class SupplyChainManagementSystem {
                              " - Items: " + order.getOrderItems().size());
         }
         
-        System.out.print("\nEnter order number to process (0 to cancel): ");
-        int orderIndex = Integer.parseInt(scanner.nextLine());
+        System.out.print("\nEnter order number to process, A to release all (0 to cancel): ");
+        String selection = scanner.nextLine().trim();
         
-        if (orderIndex < 1 || orderIndex > processingOrders.size()) {
-            System.out.println("Operation cancelled or invalid selection.");
-            return;
+        List<Order> wave;
+        if (selection.equalsIgnoreCase("A")) {
+            wave = processingOrders;
+        } else {
+            int orderIndex = Integer.parseInt(selection);
+            
+            if (orderIndex < 1 || orderIndex > processingOrders.size()) {
+                System.out.println("Operation cancelled or invalid selection.");
+                return;
+            }
+            wave = new ArrayList<>();
+            wave.add(processingOrders.get(orderIndex - 1));
         }
         
-        Order selectedOrder = processingOrders.get(orderIndex - 1);
-        
         // Check if items are available in warehouse inventory
         String warehouseId = warehouseManager.getWarehouseId();
         Inventory inventory = inventories.get(warehouseId);
@@ -1289,62 +1335,43 @@ public class SupplyChainManagementSystem {
             return;
         }
         
-        // Check inventory levels
-        boolean sufficientStock = true;
-        StringBuilder insufficientItems = new StringBuilder();
+        // Allocate and remove stock for the whole wave, each order all or nothing
+        FulfillmentEngine.WaveResult result = fulfillmentEngine.releaseWave(wave, inventory);
         
-        for (Map.Entry<Product, Integer> entry : selectedOrder.getOrderItems().entrySet()) {
-            Product product = entry.getKey();
-            Integer quantityNeeded = entry.getValue();
+        Date deliveryDate = new Date(System.currentTimeMillis() + (2 * 24 * 60 * 60 * 1000L));
+        for (Order order : result.getShippedOrders()) {
+            warehouseManager.processOutgoingOrder(order);
             
-            if (!inventory.isInStock(product, quantityNeeded)) {
-                sufficientStock = false;
-                insufficientItems.append("- ").append(product.getName())
-                                .append(" (Required: ").append(quantityNeeded)
-                                .append(", In stock: ").append(inventory.getStockCount(product))
-                                .append(")\n");
-            }
+            // Set expected delivery date
+            order.setDeliveryDate(deliveryDate);
+            
+            // Send notification
+            notificationService.sendOrderUpdate(order, 
+                "Order has been shipped from warehouse " + warehouseId + 
+                ". Expected delivery: " + new SimpleDateFormat("yyyy-MM-dd").format(deliveryDate));
         }
         
-        if (!sufficientStock) {
-            System.out.println("Insufficient stock for the following items:");
-            System.out.println(insufficientItems.toString());
-            System.out.println("Cannot process order at this time.");
-            return;
+        if (!result.getShippedOrders().isEmpty()) {
+            System.out.println(result.getShippedOrders().size() + " order(s) processed successfully. Order status updated to SHIPPED.");
         }
         
-        // Update order status
-        selectedOrder.updateStatus(OrderStatus.SHIPPED);
-        
-        // Remove items from inventory
-        try {
-            for (Map.Entry<Product, Integer> entry : selectedOrder.getOrderItems().entrySet()) {
-                Product product = entry.getKey();
-                Integer quantity = entry.getValue();
-                
-                inventory.removeStock(product, quantity);
+        if (!result.getBackorderedOrders().isEmpty()) {
+            System.out.println("Insufficient stock for the following orders:");
+            for (Order order : result.getBackorderedOrders()) {
+                System.out.println("- " + order.getOrderId());
+                for (Map.Entry<Product, Integer> entry : order.getOrderItems().entrySet()) {
+                    Product product = entry.getKey();
+                    if (!inventory.isInStock(product, entry.getValue())) {
+                        System.out.println("    " + product.getName() + " (Required: " + entry.getValue() + 
+                                         ", In stock: " + inventory.getStockCount(product) + ")");
+                    }
+                }
             }
-        } catch (InventoryException e) {
-            System.out.println("Error: " + e.getMessage());
-            return;
+            System.out.println("These orders remain in processing.");
         }
         
-        // Process the outgoing order
-        boolean result = warehouseManager.processOutgoingOrder(selectedOrder);
-        
-        if (result) {
-            System.out.println("Order processed successfully. Order status updated to SHIPPED.");
-            
-            // Set expected delivery date
-            Date deliveryDate = new Date(System.currentTimeMillis() + (2 * 24 * 60 * 60 * 1000L));
-            selectedOrder.setDeliveryDate(deliveryDate);
-            
-            // Send notification
-            notificationService.sendOrderUpdate(selectedOrder, 
-                "Order has been shipped from warehouse " + warehouseId + 
-                ". Expected delivery: " + new SimpleDateFormat("yyyy-MM-dd").format(deliveryDate));
-        } else {
-            System.out.println("Error processing order.");
+        for (Order order : result.getSkippedOrders()) {
+            System.out.println("Order " + order.getOrderId() + " is no longer awaiting processing.");
         }
     }
     
@@ -1416,7 +1443,7 @@ public class SupplyChainManagementSystem {
         }
         
         System.out.println("Store: " + storeId + " (" + retailer.getLocation() + ")");
-        System.out.println("Total Items: " + inventory.getStockLevels().size());
+        System.out.println("Total Items: " + inventory.getProductCount());
         System.out.println("Total Value: $" + String.format("%.2f", inventory.getTotalInventoryValue()));
         
         System.out.println("\n1. View All Products");
@@ -1444,7 +1471,8 @@ public class SupplyChainManagementSystem {
                 break;
                 
             case 2: // View by Category
-                System.out.print("\nEnter category name: ");
+                System.out.println("\nCategories: " + String.join(", ", inventory.getCategories()));
+                System.out.print("Enter category name: ");
                 String category = scanner.nextLine();
                 
                 Map<Product, Integer> categoryProducts = inventory.getProductsByCategory(category);
@@ -1464,6 +1492,9 @@ public class SupplyChainManagementSystem {
                         System.out.println(String.format("%-40s %-10d $%-14.2f $%-14.2f", 
                             product.getName(), stock, product.getPrice(), value));
                     }
+                    
+                    System.out.println("------------------------------------------------------------------");
+                    System.out.println(String.format("Category Value: $%.2f", inventory.getCategoryValue(category)));
                 }
                 break;
                 
@@ -1484,11 +1515,10 @@ public class SupplyChainManagementSystem {
         System.out.println("\n--- Place New Order ---");
         
         // Get available suppliers
-        Map<String, User> users = authService.getUsers();
         List<Supplier> suppliers = new ArrayList<>();
         
-        for (User user : users.values()) {
-            if (user instanceof Supplier && user.isActive()) {
+        for (User user : authService.getActiveUsers(Role.SUPPLIER)) {
+            if (user instanceof Supplier) {
                 suppliers.add((Supplier) user);
             }
         }
@@ -1516,16 +1546,7 @@ public class SupplyChainManagementSystem {
         Supplier selectedSupplier = suppliers.get(supplierIndex - 1);
         
         // Get all products from this supplier
-        List<Product> allProducts = new ArrayList<>();
-        
-        for (Inventory inventory : inventories.values()) {
-            for (Product product : inventory.getStockLevels().keySet()) {
-                if (selectedSupplier.getUserId().equals(product.getSupplierUserId()) && 
-                    !allProducts.contains(product)) {
-                    allProducts.add(product);
-                }
-            }
-        }
+        List<Product> allProducts = productCatalog.getProductsBySupplier(selectedSupplier.getUserId());
         
         if (allProducts.isEmpty()) {
             System.out.println("No products available from this supplier.");
@@ -1597,7 +1618,7 @@ public class SupplyChainManagementSystem {
         
         if (order != null) {
             order.setShippingAddress(shippingAddress);
-            orders.add(order);
+            orderStore.addOrder(order);
             
             // Calculate total
             double total = order.calculateTotal();
@@ -1684,6 +1705,11 @@ public class SupplyChainManagementSystem {
                     
                     System.out.println("--------------------------------------------------");
                     System.out.println(String.format("Total: $%.2f", total));
+                    
+                    System.out.print("\nCheck out scanned products? (y/n): ");
+                    if (scanner.nextLine().trim().equalsIgnoreCase("y")) {
+                        checkoutScans(retailer, barcodes);
+                    }
                 }
                 break;
                 
@@ -1695,6 +1721,32 @@ public class SupplyChainManagementSystem {
         }
     }
     
+    // Method to send scanned barcodes through the store's scan pipeline into its inventory
+    private void checkoutScans(Retailer retailer, String[] barcodes) {
+        Inventory inventory = inventories.get(retailer.getStoreId());
+        if (inventory == null) {
+            System.out.println("No inventory found for store ID: " + retailer.getStoreId());
+            return;
+        }
+        
+        ScanPipeline pipeline = scanPipelines.computeIfAbsent(inventory.getLocationId(),
+                                                              id -> new ScanPipeline(inventory));
+        long shortBefore = pipeline.getShortUnitCount();
+        int checkedOut = 0;
+        for (String barcode : barcodes) {
+            if (pipeline.scan(barcode) != null) {
+                checkedOut++;
+            }
+        }
+        pipeline.flush();
+        
+        System.out.println(checkedOut + " scanned items checked out of " + inventory.getLocationId() + ".");
+        long shortUnits = pipeline.getShortUnitCount() - shortBefore;
+        if (shortUnits > 0) {
+            System.out.println("Warning: " + shortUnits + " units were not in stock, please recount.");
+        }
+    }
+    
     // Method to record sales (Retailer)
     private void recordSales(Retailer retailer) {
         System.out.println("\n--- Record Sales ---");
@@ -1869,7 +1921,7 @@ public class SupplyChainManagementSystem {
         
         try {
             // Verify current password
-            if (currentUser.login(currentPassword)) {
+            if (currentUser.checkPassword(currentPassword)) {
                 System.out.print("Enter new password: ");
                 String newPassword = scanner.nextLine();
                 
@@ -1892,8 +1944,9 @@ public class SupplyChainManagementSystem {
     // Method to logout
     private void logout() {
         if (currentUser != null) {
-            currentUser.logout();
+            authService.logoutSession(currentSession.getToken());
             System.out.println(currentUser.getName() + " has been logged out.");
+            currentSession = null;
             currentUser = null;
         }
     }
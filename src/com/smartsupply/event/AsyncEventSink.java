@@ -0,0 +1,133 @@
+package com.smartsupply.event;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Event sink that queues events in a lock-free ring buffer and writes them
+ * in batches from a background thread
+ * Publishers never wait on console or file I/O: when the buffer is full the
+ * event is dropped and counted instead
+ */
+public class AsyncEventSink implements EventSink {
+    private static final int DEFAULT_CAPACITY = 8192;
+    private static final int DEFAULT_BATCH_SIZE = 256;
+    private static final long POLL_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(250);
+    
+    private final RingBuffer<DomainEvent> buffer;
+    private final PrintStream out;
+    private final int batchSize;
+    private final AtomicLong published;
+    private final AtomicLong dropped;
+    private final Thread writer;
+    private volatile long written;
+    private volatile boolean writerIdle; // Writer is parked on an empty buffer, publishers wake it
+    private volatile boolean running;
+    
+    // Constructor with default sizes
+    public AsyncEventSink(PrintStream out) {
+        this(out, DEFAULT_CAPACITY, DEFAULT_BATCH_SIZE);
+    }
+    
+    // Constructor with buffer capacity and batch size
+    public AsyncEventSink(PrintStream out, int capacity, int batchSize) {
+        this.buffer = new RingBuffer<>(capacity);
+        this.out = out;
+        this.batchSize = batchSize;
+        this.published = new AtomicLong();
+        this.dropped = new AtomicLong();
+        this.running = true;
+        this.writer = new Thread(this::writeLoop, "event-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+    
+    @Override
+    public void publish(DomainEvent event) {
+        if (buffer.offer(event)) {
+            published.incrementAndGet();
+            if (writerIdle) {
+                LockSupport.unpark(writer);
+            }
+        } else {
+            dropped.incrementAndGet();
+        }
+    }
+    
+    @Override
+    public void flush() {
+        long target = published.get();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        
+        while (written < target && writer.isAlive() && System.nanoTime() < deadline) {
+            LockSupport.parkNanos(POLL_NANOS);
+        }
+    }
+    
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(writer);
+        
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    // Background loop: drain a batch, build its text in one buffer, write once
+    private void writeLoop() {
+        List<DomainEvent> batch = new ArrayList<>(batchSize);
+        StringBuilder text = new StringBuilder();
+        
+        while (running || !buffer.isEmpty()) {
+            int count = buffer.drainTo(batch, batchSize);
+            
+            if (count == 0) {
+                awaitEvents();
+                continue;
+            }
+            
+            for (DomainEvent event : batch) {
+                text.append(event.format()).append(System.lineSeparator());
+            }
+            
+            out.print(text);
+            out.flush();
+            written += count;
+            
+            batch.clear();
+            text.setLength(0);
+        }
+    }
+    
+    // Parks the writer until an event is published, close stops it or the idle timeout passes
+    // The flag is set before the buffer is checked again, so an event published in between is
+    // never missed: either the check sees the event or the publisher sees the flag
+    private void awaitEvents() {
+        writerIdle = true;
+        if (running && buffer.isEmpty()) {
+            LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+        }
+        writerIdle = false;
+    }
+    
+    // Getters for monitoring
+    public long getPublishedCount() {
+        return published.get();
+    }
+    
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+    
+    public int getPendingCount() {
+        return buffer.size();
+    }
+}
\ No newline at end of file
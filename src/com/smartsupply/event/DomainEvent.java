@@ -0,0 +1,128 @@
+package com.smartsupply.event;
+
+/**
+ * Immutable record of a change made to a domain object
+ * Events carry raw values; the text is only built when a sink writes them,
+ * so publishing costs one small allocation and no string formatting
+ */
+public final class DomainEvent {
+    
+    // Enum of the kinds of change that are published
+    public enum Type {
+        STOCK_ADDED,
+        STOCK_REMOVED,
+        ORDER_STATUS_CHANGED,
+        ORDER_PAID,
+        PRODUCT_PRICE_UPDATED,
+        PRODUCT_PRICES_UPDATED,
+        SPACE_ALLOCATED
+    }
+    
+    private final Type type;
+    private final long timestamp;
+    private final String subject;  // Product name, order ID, category...
+    private final String location; // Location, section or other scope, may be null
+    private final Object before;
+    private final Object after;
+    private final double amount;
+    
+    // Full constructor
+    public DomainEvent(Type type, String subject, String location, Object before, Object after, double amount) {
+        this.type = type;
+        this.timestamp = System.currentTimeMillis();
+        this.subject = subject;
+        this.location = location;
+        this.before = before;
+        this.after = after;
+        this.amount = amount;
+    }
+    
+    // Factory methods for the events published by the model
+    public static DomainEvent stockAdded(String locationId, String productName, int quantity, int newStock) {
+        return new DomainEvent(Type.STOCK_ADDED, productName, locationId, null, newStock, quantity);
+    }
+    
+    public static DomainEvent stockRemoved(String locationId, String productName, int quantity, int newStock) {
+        return new DomainEvent(Type.STOCK_REMOVED, productName, locationId, null, newStock, quantity);
+    }
+    
+    public static DomainEvent orderStatusChanged(String orderId, Object oldStatus, Object newStatus) {
+        return new DomainEvent(Type.ORDER_STATUS_CHANGED, orderId, null, oldStatus, newStatus, 0);
+    }
+    
+    public static DomainEvent orderPaid(String orderId) {
+        return new DomainEvent(Type.ORDER_PAID, orderId, null, null, null, 0);
+    }
+    
+    public static DomainEvent productPriceUpdated(String productId, double newPrice) {
+        return new DomainEvent(Type.PRODUCT_PRICE_UPDATED, productId, null, null, null, newPrice);
+    }
+    
+    public static DomainEvent productPricesUpdated(String supplierUserId, int count) {
+        return new DomainEvent(Type.PRODUCT_PRICES_UPDATED, supplierUserId, null, null, null, count);
+    }
+    
+    public static DomainEvent spaceAllocated(String section, String productCategory, double spaceNeeded) {
+        return new DomainEvent(Type.SPACE_ALLOCATED, productCategory, section, null, null, spaceNeeded);
+    }
+    
+    // Method to render the event as the console line it replaces
+    public String format() {
+        switch (type) {
+            case STOCK_ADDED:
+                return "Added " + (long) amount + " units of " + subject +
+                       " to " + location + ". New stock: " + after;
+            case STOCK_REMOVED:
+                return "Removed " + (long) amount + " units of " + subject +
+                       " from " + location + ". New stock: " + after;
+            case ORDER_STATUS_CHANGED:
+                return "Order " + subject + " status updated from " + before + " to " + after;
+            case ORDER_PAID:
+                return "Order " + subject + " marked as paid";
+            case PRODUCT_PRICE_UPDATED:
+                return "Updated price of product " + subject + " to " + amount;
+            case PRODUCT_PRICES_UPDATED:
+                return "Updated " + (long) amount + " product prices";
+            case SPACE_ALLOCATED:
+                return (location == null)
+                    ? "Space allocated for " + subject + ": " + amount + " cubic meters"
+                    : "Space allocated in section " + location + " for " + subject + ": " + amount + " cubic meters";
+            default:
+                return type + " " + subject;
+        }
+    }
+    
+    // Getters
+    public Type getType() {
+        return type;
+    }
+    
+    public long getTimestamp() {
+        return timestamp;
+    }
+    
+    public String getSubject() {
+        return subject;
+    }
+    
+    public String getLocation() {
+        return location;
+    }
+    
+    public Object getBefore() {
+        return before;
+    }
+    
+    public Object getAfter() {
+        return after;
+    }
+    
+    public double getAmount() {
+        return amount;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("DomainEvent[type=%s, subject=%s, location=%s]", type, subject, location);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,37 @@
+package com.smartsupply.event;
+
+/**
+ * Static entry point used by model classes to publish domain events
+ * Defaults to an asynchronous console sink; another sink can be installed
+ * at startup, e.g. to write to a file or to discard events in bulk loads
+ */
+public class EventPublisher {
+    private static volatile EventSink sink = createDefaultSink();
+    
+    // Method to publish an event to the installed sink
+    public static void publish(DomainEvent event) {
+        sink.publish(event);
+    }
+    
+    // Method to wait until published events have been written
+    public static void flush() {
+        sink.flush();
+    }
+    
+    // Method to install a new sink, the previous one is closed
+    public static void setSink(EventSink newSink) {
+        EventSink previous = sink;
+        sink = newSink;
+        previous.close();
+    }
+    
+    public static EventSink getSink() {
+        return sink;
+    }
+    
+    private static EventSink createDefaultSink() {
+        AsyncEventSink defaultSink = new AsyncEventSink(System.out);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> sink.close(), "event-sink-shutdown"));
+        return defaultSink;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,26 @@
+package com.smartsupply.event;
+
+/**
+ * Interface for destinations of domain events
+ * Implementations must not block the publishing thread
+ */
+public interface EventSink {
+    
+    /**
+     * Hands an event to the sink
+     * @param event The event to record
+     */
+    void publish(DomainEvent event);
+    
+    /**
+     * Waits until events published so far have been written
+     */
+    default void flush() {
+    }
+    
+    /**
+     * Writes any pending events and releases the sink's resources
+     */
+    default void close() {
+    }
+}
\ No newline at end of file
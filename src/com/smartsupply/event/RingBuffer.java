@@ -0,0 +1,107 @@
+package com.smartsupply.event;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free ring buffer for many producers and consumers
+ * Each cell carries a sequence number that tells producers and consumers
+ * whether it is free or filled, so neither side ever takes a lock and a
+ * full buffer is reported to the producer instead of blocking it
+ */
+public class RingBuffer<E> {
+    private final int mask;
+    private final AtomicReferenceArray<E> cells;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail; // Next position to write
+    private final AtomicLong head; // Next position to read
+    
+    // Constructor with capacity, rounded up to a power of two
+    public RingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.mask = size - 1;
+        this.cells = new AtomicReferenceArray<>(size);
+        this.sequences = new AtomicLongArray(size);
+        this.tail = new AtomicLong();
+        this.head = new AtomicLong();
+        
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+    
+    // Method to add an element, returns false if the buffer is full
+    public boolean offer(E element) {
+        long position = tail.get();
+        
+        while (true) {
+            int index = (int) (position & mask);
+            long lag = sequences.get(index) - position;
+            
+            if (lag == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    cells.lazySet(index, element);
+                    sequences.set(index, position + 1); // Publish to consumers
+                    return true;
+                }
+                position = tail.get();
+            } else if (lag < 0) {
+                return false; // Cell still holds an unread element from the previous lap
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+    
+    // Method to take the oldest element, returns null if the buffer is empty
+    public E poll() {
+        long position = head.get();
+        
+        while (true) {
+            int index = (int) (position & mask);
+            long lag = sequences.get(index) - (position + 1);
+            
+            if (lag == 0) {
+                if (head.compareAndSet(position, position + 1)) {
+                    E element = cells.get(index);
+                    cells.lazySet(index, null);
+                    sequences.set(index, position + mask + 1); // Hand the cell back to producers
+                    return element;
+                }
+                position = head.get();
+            } else if (lag < 0) {
+                return null;
+            } else {
+                position = head.get();
+            }
+        }
+    }
+    
+    // Method to move up to maxElements into a collection, returns the number moved
+    public int drainTo(Collection<? super E> target, int maxElements) {
+        int count = 0;
+        E element;
+        
+        while (count < maxElements && (element = poll()) != null) {
+            target.add(element);
+            count++;
+        }
+        
+        return count;
+    }
+    
+    // Approximate number of elements waiting
+    public int size() {
+        return (int) Math.max(0, tail.get() - head.get());
+    }
+    
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+    
+    public int capacity() {
+        return mask + 1;
+    }
+}
\ No newline at end of file
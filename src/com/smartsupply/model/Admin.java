@@ -1,5 +1,8 @@
 package com.smartsupply.model;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
@@ -10,6 +13,8 @@ import java.util.HashMap;
  * Admin class representing system administrators with highest privileges
  */
 public class Admin extends User {
+    private static final long serialVersionUID = 3291035362899937161L;
+    
     private int adminLevel; // Determines the level of administrative access
     private List<String> managedModules; // List of system modules this admin manages
     
@@ -132,6 +137,20 @@ public class Admin extends User {
         managedModules.remove(module);
     }
     
+    @Override
+    public void writeFields(DataOutput out) throws IOException {
+        super.writeFields(out);
+        out.writeInt(adminLevel);
+        writeStringList(out, managedModules);
+    }
+    
+    @Override
+    public void readFields(DataInput in) throws IOException {
+        super.readFields(in);
+        this.adminLevel = in.readInt();
+        this.managedModules = readStringList(in);
+    }
+    
     @Override
     public String toString() {
         return String.format("Admin[id=%s, name=%s, level=%d]", 
@@ -1,29 +1,66 @@
 package com.smartsupply.model;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import com.smartsupply.event.DomainEvent;
+import com.smartsupply.event.EventPublisher;
 import com.smartsupply.exception.InventoryException;
 
 /**
  * Class representing inventory at a specific location
+ * Stock, thresholds and recommended levels live in a primitive StockTable.
+ * Each product's updates run under one of the table's striped locks, so
+ * terminals working on different products rarely contend and no global lock
+ * is needed; reads of a single count never lock
+ * Products at or below their reorder threshold, the stock valuation and a
+ * category index are maintained incrementally, so low-stock, value and
+ * category queries do not rescan the whole table
+ * A StockJournal, when set, logs each change under the product's lock
+ * before it is applied; the change waits for the log after the lock is released
  */
-public class Inventory implements Serializable {
+public class Inventory implements Serializable, ProductChangeListener {
+    private static final String UNCATEGORIZED = "";
+    
+    // Nested class holding the products and stock value of one category
+    private static class CategoryEntry implements Serializable {
+        private static final long serialVersionUID = 1L;
+        
+        private final Set<Product> products = ConcurrentHashMap.newKeySet();
+        private final LongAdder valueCents = new LongAdder();
+    }
+    
     private String locationId;
     private String locationType; // "warehouse", "store", etc.
-    private Map<Product, Integer> stockLevels;
-    private Map<Product, Integer> reorderThresholds;
-    private Map<Product, Integer> recommendedStockLevels;
-    private Date lastUpdated;
+    private final StockTable stockTable;
+    private final AtomicInteger productCount;
+    private final Set<Product> lowStockProducts;
+    private final LongAdder totalValueCents;
+    private final Map<String, CategoryEntry> categories;
+    private volatile Date lastUpdated;
+    private transient volatile List<StockChangeListener> stockListeners;
+    private transient volatile StockJournal journal;
     
     // Default constructor
     public Inventory() {
-        this.stockLevels = new HashMap<>();
-        this.reorderThresholds = new HashMap<>();
-        this.recommendedStockLevels = new HashMap<>();
+        this.stockTable = new StockTable();
+        this.productCount = new AtomicInteger();
+        this.lowStockProducts = ConcurrentHashMap.newKeySet();
+        this.totalValueCents = new LongAdder();
+        this.categories = new ConcurrentHashMap<>();
         this.lastUpdated = new Date();
     }
     
@@ -36,11 +73,41 @@ public class Inventory implements Serializable {
     
     // Method to add stock
     public void addStock(Product product, int quantity) {
-        int currentStock = stockLevels.getOrDefault(product, 0);
-        stockLevels.put(product, currentStock + quantity);
+        product = product.intern(); // Slots, indexes and listeners always hold the canonical instance
+        int slot = stockTable.slotFor(product);
+        int newStock;
+        StockJournal log = journal;
+        long ticket = 0;
+        
+        ReentrantLock lock = stockTable.lockFor(slot);
+        lock.lock();
+        try {
+            // Logged first, so a journal that cannot take the record leaves the stock untouched
+            if (log != null) {
+                ticket = log.logStockChange(this, product, quantity);
+            }
+            if (stockTable.setFlags(slot, StockTable.LISTED)) {
+                listProduct(slot, product);
+            }
+            
+            newStock = stockTable.get(slot, StockTable.STOCK) + quantity;
+            stockTable.set(slot, StockTable.STOCK, newStock);
+            adjustValue(slot, quantity);
+            refreshLowStock(slot, product);
+        } finally {
+            lock.unlock();
+        }
+        awaitJournal(log, ticket);
+        
         lastUpdated = new Date();
-        System.out.println("Added " + quantity + " units of " + product.getName() + 
-                         " to " + locationId + ". New stock: " + (currentStock + quantity));
+        EventPublisher.publish(DomainEvent.stockAdded(locationId, product.getName(), quantity, newStock));
+        
+        List<StockChangeListener> listeners = stockListeners;
+        if (listeners != null) {
+            for (StockChangeListener listener : listeners) {
+                listener.onStockChanged(this, product, quantity);
+            }
+        }
     }
     
     // Varargs method to add multiple products at once
@@ -56,79 +123,431 @@ public class Inventory implements Serializable {
     
     // Method to remove stock
     public boolean removeStock(Product product, int quantity) throws InventoryException {
-        int currentStock = stockLevels.getOrDefault(product, 0);
+        product = product.intern();
+        int slot = stockTable.slotOf(product);
+        int currentStock = 0;
+        StockJournal log = journal;
+        long ticket = 0;
+        
+        if (slot >= 0) {
+            // Check-and-decrement under the product's lock, so stock can never be oversold
+            ReentrantLock lock = stockTable.lockFor(slot);
+            lock.lock();
+            try {
+                currentStock = stockTable.get(slot, StockTable.STOCK);
+                
+                if (quantity <= currentStock) {
+                    if (log != null) {
+                        ticket = log.logStockChange(this, product, -quantity);
+                    }
+                    stockTable.set(slot, StockTable.STOCK, currentStock - quantity);
+                    adjustValue(slot, -quantity);
+                    refreshLowStock(slot, product);
+                }
+            } finally {
+                lock.unlock();
+            }
+            awaitJournal(log, ticket);
+        }
         
         if (quantity > currentStock) {
             throw new InventoryException("Insufficient stock for product: " + product.getName());
         }
         
-        stockLevels.put(product, currentStock - quantity);
         lastUpdated = new Date();
-        System.out.println("Removed " + quantity + " units of " + product.getName() + 
-                         " from " + locationId + ". New stock: " + (currentStock - quantity));
+        EventPublisher.publish(DomainEvent.stockRemoved(locationId, product.getName(), quantity, currentStock - quantity));
+        
+        List<StockChangeListener> listeners = stockListeners;
+        if (listeners != null) {
+            for (StockChangeListener listener : listeners) {
+                listener.onStockChanged(this, product, -quantity);
+            }
+        }
         
         return true;
     }
     
+    // Method to remove stock of several products as one all-or-nothing step
+    // Either every quantity is removed or, if any product is short, nothing is
+    public boolean removeStock(Map<Product, Integer> quantities) throws InventoryException {
+        int size = quantities.size();
+        Product[] products = new Product[size];
+        int[] amounts = new int[size];
+        int[] slots = new int[size];
+        int[] remaining = new int[size];
+        int[] deltas = new int[size];
+        long stripeMask = 0L;
+        StockJournal log = journal;
+        long ticket = 0;
+        
+        int i = 0;
+        for (Map.Entry<Product, Integer> entry : quantities.entrySet()) {
+            products[i] = entry.getKey().intern();
+            amounts[i] = entry.getValue();
+            deltas[i] = -amounts[i];
+            slots[i] = stockTable.slotOf(products[i]);
+            if (slots[i] < 0 && amounts[i] > 0) {
+                throw new InventoryException("Insufficient stock for product: " + products[i].getName());
+            }
+            if (slots[i] >= 0) {
+                stripeMask |= 1L << StockTable.stripeOf(slots[i]);
+            }
+            i++;
+        }
+        
+        // Take every stripe involved in ascending order, then check and apply all lines together
+        lockStripes(stripeMask);
+        try {
+            for (i = 0; i < size; i++) {
+                if (slots[i] >= 0 && stockTable.get(slots[i], StockTable.STOCK) < amounts[i]) {
+                    throw new InventoryException("Insufficient stock for product: " + products[i].getName());
+                }
+            }
+            
+            // Every line is logged before any is applied, under the same stripes
+            if (log != null) {
+                ticket = log.logStockChanges(this, products, deltas);
+            }
+            for (i = 0; i < size; i++) {
+                if (slots[i] < 0) {
+                    continue;
+                }
+                remaining[i] = stockTable.get(slots[i], StockTable.STOCK) - amounts[i];
+                stockTable.set(slots[i], StockTable.STOCK, remaining[i]);
+                adjustValue(slots[i], -amounts[i]);
+                refreshLowStock(slots[i], products[i]);
+            }
+        } finally {
+            unlockStripes(stripeMask);
+        }
+        awaitJournal(log, ticket);
+        
+        lastUpdated = new Date();
+        
+        for (i = 0; i < size; i++) {
+            if (amounts[i] == 0) {
+                continue;
+            }
+            EventPublisher.publish(DomainEvent.stockRemoved(locationId, products[i].getName(), amounts[i], remaining[i]));
+        }
+        
+        // One notification for the whole step, so a listener can handle the lines together
+        List<StockChangeListener> listeners = stockListeners;
+        if (listeners != null) {
+            for (StockChangeListener listener : listeners) {
+                listener.onStockChanged(this, products, deltas);
+            }
+        }
+        
+        return true;
+    }
+    
+    private void lockStripes(long stripeMask) {
+        for (long mask = stripeMask; mask != 0; mask &= mask - 1) {
+            stockTable.stripe(Long.numberOfTrailingZeros(mask)).lock();
+        }
+    }
+    
+    private void unlockStripes(long stripeMask) {
+        for (long mask = stripeMask; mask != 0; mask &= mask - 1) {
+            stockTable.stripe(Long.numberOfTrailingZeros(mask)).unlock();
+        }
+    }
+    
     // Method to check if a product is in stock
     public boolean isInStock(Product product, int quantityNeeded) {
-        int currentStock = stockLevels.getOrDefault(product, 0);
-        return currentStock >= quantityNeeded;
+        return getStockCount(product) >= quantityNeeded;
     }
     
     // Method to set reorder threshold
     public void setReorderThreshold(Product product, int threshold) {
-        reorderThresholds.put(product, threshold);
+        product = product.intern();
+        int slot = stockTable.slotFor(product);
+        StockJournal log = journal;
+        long ticket = 0;
+        
+        ReentrantLock lock = stockTable.lockFor(slot);
+        lock.lock();
+        try {
+            // Thresholds are absolute, so they are logged under the lock in the order they are set
+            if (log != null) {
+                ticket = log.logThreshold(this, product, threshold);
+            }
+            stockTable.set(slot, StockTable.THRESHOLD, threshold);
+            refreshLowStock(slot, product);
+        } finally {
+            lock.unlock();
+        }
+        awaitJournal(log, ticket);
+        
+        List<StockChangeListener> listeners = stockListeners;
+        if (listeners != null) {
+            for (StockChangeListener listener : listeners) {
+                listener.onThresholdChanged(this, product, threshold);
+            }
+        }
+    }
+    
+    // Method to get the reorder threshold of a product
+    public int getReorderThreshold(Product product) {
+        int slot = stockTable.slotOf(product);
+        return (slot >= 0) ? stockTable.get(slot, StockTable.THRESHOLD) : 0;
+    }
+    
+    // Method to set recommended stock level
+    public void setRecommendedStockLevel(Product product, int level) {
+        stockTable.set(stockTable.slotFor(product), StockTable.RECOMMENDED, level);
+    }
+    
+    // Method to get the recommended stock level of a product
+    public int getRecommendedStockLevel(Product product) {
+        int slot = stockTable.slotOf(product);
+        return (slot >= 0) ? stockTable.get(slot, StockTable.RECOMMENDED) : 0;
     }
     
     // Method to check products that need reordering
     public List<Product> checkLowStock() {
-        List<Product> lowStockProducts = new ArrayList<>();
+        return new ArrayList<>(lowStockProducts);
+    }
+    
+    // Method to check if one product is stocked here and at or below its reorder threshold
+    public boolean isLowStock(Product product) {
+        int slot = stockTable.slotOf(product);
+        return slot >= 0 && stockTable.hasFlags(slot, StockTable.LOW);
+    }
+    
+    // Method to bring a slot's low-stock index entry in line with its cells
+    // Callers hold the slot's lock, so updates for one product never interleave
+    private void refreshLowStock(int slot, Product product) {
+        boolean low = stockTable.hasFlags(slot, StockTable.LISTED) &&
+            stockTable.get(slot, StockTable.STOCK) <= stockTable.get(slot, StockTable.THRESHOLD);
+        
+        if (low && stockTable.setFlags(slot, StockTable.LOW)) {
+            lowStockProducts.add(product);
+        } else if (!low && stockTable.clearFlags(slot, StockTable.LOW)) {
+            lowStockProducts.remove(product);
+        }
+    }
+    
+    // Method to start tracking a newly stocked product, caller holds the slot's lock
+    private void listProduct(int slot, Product product) {
+        String category = categoryKey(product.getCategory());
+        productCount.incrementAndGet();
+        stockTable.setUnitCents(slot, product.getPriceCents());
+        stockTable.setValuedCategory(slot, category);
+        categoryEntry(category).products.add(product);
+        product.addChangeListener(this);
+    }
+    
+    // Method to stop tracking a product at this location, its remaining stock is written off
+    public boolean removeProduct(Product product) {
+        product = product.intern();
+        int slot = stockTable.slotOf(product);
+        if (slot < 0) {
+            return false;
+        }
+        
+        StockJournal log = journal;
+        long ticket = 0;
         
-        for (Map.Entry<Product, Integer> entry : stockLevels.entrySet()) {
-            Product product = entry.getKey();
-            int currentStock = entry.getValue();
-            int threshold = reorderThresholds.getOrDefault(product, 0);
+        ReentrantLock lock = stockTable.lockFor(slot);
+        lock.lock();
+        try {
+            if (!stockTable.hasFlags(slot, StockTable.LISTED)) {
+                return false;
+            }
+            if (log != null) {
+                ticket = log.logProductRemoved(this, product);
+            }
+            stockTable.clearFlags(slot, StockTable.LISTED);
             
-            if (currentStock <= threshold) {
-                lowStockProducts.add(product);
+            adjustValue(slot, -stockTable.get(slot, StockTable.STOCK));
+            stockTable.set(slot, StockTable.STOCK, 0);
+            refreshLowStock(slot, product);
+            categoryEntry(stockTable.getValuedCategory(slot)).products.remove(product);
+            productCount.decrementAndGet();
+            product.removeChangeListener(this);
+        } finally {
+            lock.unlock();
+        }
+        awaitJournal(log, ticket);
+        
+        lastUpdated = new Date();
+        
+        List<StockChangeListener> listeners = stockListeners;
+        if (listeners != null) {
+            for (StockChangeListener listener : listeners) {
+                listener.onProductRemoved(this, product);
+            }
+        }
+        return true;
+    }
+    
+    // Method to load a product's persisted state, bypassing events and stock listeners
+    public void restoreProduct(Product product, int stock, int threshold) {
+        product = product.intern();
+        int slot = stockTable.slotFor(product);
+        
+        ReentrantLock lock = stockTable.lockFor(slot);
+        lock.lock();
+        try {
+            if (stockTable.setFlags(slot, StockTable.LISTED)) {
+                listProduct(slot, product);
             }
+            
+            adjustValue(slot, stock - stockTable.get(slot, StockTable.STOCK));
+            stockTable.set(slot, StockTable.STOCK, stock);
+            stockTable.set(slot, StockTable.THRESHOLD, threshold);
+            refreshLowStock(slot, product);
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    // Method to register a listener for stock changes
+    public synchronized void addStockChangeListener(StockChangeListener listener) {
+        if (stockListeners == null) {
+            stockListeners = new CopyOnWriteArrayList<>();
+        }
+        stockListeners.add(listener);
+    }
+    
+    // Method to unregister a stock change listener
+    public synchronized void removeStockChangeListener(StockChangeListener listener) {
+        if (stockListeners != null) {
+            stockListeners.remove(listener);
+        }
+    }
+    
+    // Method to set the journal that logs this inventory's changes before they are applied, null for none
+    public void setJournal(StockJournal journal) {
+        this.journal = journal;
+    }
+    
+    // Waits for a logged change once the product's lock has been released
+    private static void awaitJournal(StockJournal log, long ticket) {
+        if (ticket > 0) {
+            log.awaitDurable(ticket);
+        }
+    }
+    
+    // Method to apply a stock change to the running valuation, caller holds the slot's lock
+    private void adjustValue(int slot, int quantityDelta) {
+        long delta = quantityDelta * stockTable.getUnitCents(slot);
+        totalValueCents.add(delta);
+        categoryEntry(stockTable.getValuedCategory(slot)).valueCents.add(delta);
+    }
+    
+    private CategoryEntry categoryEntry(String category) {
+        return categories.computeIfAbsent(category, k -> new CategoryEntry());
+    }
+    
+    private static String categoryKey(String category) {
+        return (category != null) ? category : UNCATEGORIZED;
+    }
+    
+    // Revalue the stock on hand when a product's price changes
+    @Override
+    public void onPriceChanged(Product product, double oldPrice, double newPrice) {
+        int slot = stockTable.slotOf(product);
+        if (slot < 0) {
+            return;
+        }
+        
+        ReentrantLock lock = stockTable.lockFor(slot);
+        lock.lock();
+        try {
+            // Read the current price rather than newPrice in case updates race
+            long unitCents = product.getPriceCents();
+            long delta = stockTable.get(slot, StockTable.STOCK) * (unitCents - stockTable.getUnitCents(slot));
+            stockTable.setUnitCents(slot, unitCents);
+            totalValueCents.add(delta);
+            categoryEntry(stockTable.getValuedCategory(slot)).valueCents.add(delta);
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    // Move the product and its stock value between categories when it is recategorized
+    @Override
+    public void onCategoryChanged(Product product, String oldCategory, String newCategory) {
+        int slot = stockTable.slotOf(product);
+        if (slot < 0) {
+            return;
         }
         
-        return lowStockProducts;
+        ReentrantLock lock = stockTable.lockFor(slot);
+        lock.lock();
+        try {
+            String from = stockTable.getValuedCategory(slot);
+            String to = categoryKey(product.getCategory());
+            if (from.equals(to)) {
+                return;
+            }
+            
+            long value = stockTable.get(slot, StockTable.STOCK) * stockTable.getUnitCents(slot);
+            CategoryEntry fromEntry = categoryEntry(from);
+            CategoryEntry toEntry = categoryEntry(to);
+            fromEntry.valueCents.add(-value);
+            toEntry.valueCents.add(value);
+            
+            if (stockTable.hasFlags(slot, StockTable.LISTED)) {
+                fromEntry.products.remove(product);
+                toEntry.products.add(product);
+            }
+            stockTable.setValuedCategory(slot, to);
+        } finally {
+            lock.unlock();
+        }
     }
     
     // Method to get current stock count
     public int getStockCount(Product product) {
-        return stockLevels.getOrDefault(product, 0);
+        int slot = stockTable.slotOf(product);
+        return (slot >= 0) ? stockTable.get(slot, StockTable.STOCK) : 0;
+    }
+    
+    // Method to get the number of products stocked at this location
+    public int getProductCount() {
+        return productCount.get();
     }
     
     // Method to get products by category
     public Map<Product, Integer> getProductsByCategory(String category) {
         Map<Product, Integer> result = new HashMap<>();
+        CategoryEntry entry = categories.get(categoryKey(category));
         
-        for (Map.Entry<Product, Integer> entry : stockLevels.entrySet()) {
-                            Product product = entry.getKey();
-            
-            if (category.equals(product.getCategory())) {
-                result.put(product, entry.getValue());
+        if (entry != null) {
+            for (Product product : entry.products) {
+                result.put(product, getStockCount(product));
             }
         }
         
         return result;
     }
     
-    // Get total inventory value
-    public double getTotalInventoryValue() {
-        double total = 0.0;
+    // Method to get the categories stocked at this location
+    public Set<String> getCategories() {
+        Set<String> result = new HashSet<>();
         
-        for (Map.Entry<Product, Integer> entry : stockLevels.entrySet()) {
-            Product product = entry.getKey();
-            int quantity = entry.getValue();
-            total += product.getPrice() * quantity;
+        for (Map.Entry<String, CategoryEntry> entry : categories.entrySet()) {
+            if (!entry.getValue().products.isEmpty()) {
+                result.add(entry.getKey());
+            }
         }
         
-        return total;
+        return result;
+    }
+    
+    // Get total inventory value
+    public double getTotalInventoryValue() {
+        return totalValueCents.sum() / 100.0;
+    }
+    
+    // Get the value of the stock in one category
+    public double getCategoryValue(String category) {
+        CategoryEntry entry = categories.get(categoryKey(category));
+        return (entry != null) ? entry.valueCents.sum() / 100.0 : 0.0;
     }
     
     // Getters and setters
@@ -148,11 +567,36 @@ public class Inventory implements Serializable {
         this.locationType = locationType;
     }
     
+    // Returns a snapshot of the stock levels of all stocked products
     public Map<Product, Integer> getStockLevels() {
+        Map<Product, Integer> stockLevels = new LinkedHashMap<>();
+        int capacity = stockTable.capacity();
+        
+        for (int slot = 0; slot < capacity; slot++) {
+            Product product = stockTable.productAt(slot);
+            
+            if (product != null && stockTable.hasFlags(slot, StockTable.LISTED)) {
+                stockLevels.put(product, stockTable.get(slot, StockTable.STOCK));
+            }
+        }
+        
         return stockLevels;
     }
     
+    // Returns a snapshot of the reorder thresholds of every product this location has a slot for
+    // Products whose threshold was never set are included with 0
     public Map<Product, Integer> getReorderThresholds() {
+        Map<Product, Integer> reorderThresholds = new LinkedHashMap<>();
+        int capacity = stockTable.capacity();
+        
+        for (int slot = 0; slot < capacity; slot++) {
+            Product product = stockTable.productAt(slot);
+            
+            if (product != null) {
+                reorderThresholds.put(product, stockTable.get(slot, StockTable.THRESHOLD));
+            }
+        }
+        
         return reorderThresholds;
     }
     
@@ -160,9 +604,23 @@ public class Inventory implements Serializable {
         return lastUpdated;
     }
     
+    // Product listeners are transient, so re-register after deserialization
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        int capacity = stockTable.capacity();
+        
+        for (int slot = 0; slot < capacity; slot++) {
+            Product product = stockTable.productAt(slot);
+            
+            if (product != null && stockTable.hasFlags(slot, StockTable.LISTED)) {
+                product.addChangeListener(this);
+            }
+        }
+    }
+    
     @Override
     public String toString() {
-        return String.format("Inventory[location=%s, type=%s, products=%d, lastUpdated=%s]", 
-                            locationId, locationType, stockLevels.size(), lastUpdated);
+        return String.format("Inventory[location=%s, type=%s, products=%d, lastUpdated=%s]",
+                            locationId, locationType, getProductCount(), lastUpdated);
     }
 }
\ No newline at end of file
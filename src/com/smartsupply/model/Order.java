@@ -1,35 +1,96 @@
 package com.smartsupply.model;
 
 import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.atomic.AtomicReference;
+import com.smartsupply.event.DomainEvent;
+import com.smartsupply.event.EventPublisher;
 
 /**
  * Class representing an order in the system
  */
 public class Order implements Serializable {
     private String orderId;
-    private Map<Product, Integer> orderItems; // Product and quantity
+    private final OrderLines lines; // Product and quantity
     private String placedByUserId;
     private String supplierUserId;
     private Date orderDate;
     private Date deliveryDate;
-    private OrderStatus status;
+    private final AtomicReference<OrderStatus> status;
     private boolean isPaid;
-    private double totalAmount;
     private String shippingAddress;
     private int priority;
     private boolean isUrgent;
     private String notes;
+    private transient volatile Set<OrderChangeListener> changeListeners;
+    private transient Map<Product, Integer> itemsView;
+    
+    // Nested class presenting the order lines as a read-only Map without copying them
+    private class ItemsView extends AbstractMap<Product, Integer> {
+        @Override
+        public Integer get(Object product) {
+            int line = lines.indexOf(product);
+            return (line >= 0) ? lines.quantityAt(line) : null;
+        }
+        
+        @Override
+        public boolean containsKey(Object product) {
+            return lines.indexOf(product) >= 0;
+        }
+        
+        @Override
+        public int size() {
+            return lines.size();
+        }
+        
+        @Override
+        public Set<Map.Entry<Product, Integer>> entrySet() {
+            return new AbstractSet<Map.Entry<Product, Integer>>() {
+                @Override
+                public Iterator<Map.Entry<Product, Integer>> iterator() {
+                    return new Iterator<Map.Entry<Product, Integer>>() {
+                        private int next = 0;
+                        
+                        @Override
+                        public boolean hasNext() {
+                            return next < lines.size();
+                        }
+                        
+                        @Override
+                        public Map.Entry<Product, Integer> next() {
+                            if (next >= lines.size()) {
+                                throw new NoSuchElementException();
+                            }
+                            int line = next++;
+                            return new AbstractMap.SimpleImmutableEntry<>(lines.productAt(line), lines.quantityAt(line));
+                        }
+                    };
+                }
+                
+                @Override
+                public int size() {
+                    return lines.size();
+                }
+            };
+        }
+    }
     
     // Default constructor
     public Order() {
         this.orderId = UUID.randomUUID().toString();
-        this.orderItems = new HashMap<>();
+        this.lines = new OrderLines();
         this.orderDate = new Date();
-        this.status = OrderStatus.PLACED;
+        this.status = new AtomicReference<>(OrderStatus.PLACED);
         this.isPaid = false;
         this.priority = 3; // Default priority (1=highest, 5=lowest)
         this.isUrgent = false;
@@ -40,10 +101,13 @@ public class Order implements Serializable {
                 String placedByUserId, String supplierUserId) {
         this();
         this.orderId = orderId;
-        this.orderItems = orderItems;
         this.placedByUserId = placedByUserId;
         this.supplierUserId = supplierUserId;
-        this.calculateTotal(); // Calculate total when creating the order
+        
+        // Copy the items into the order's own line storage; totals build up as lines are added
+        for (Map.Entry<Product, Integer> entry : orderItems.entrySet()) {
+            lines.add(entry.getKey(), entry.getValue());
+        }
     }
     
     // Constructor with delivery details
@@ -87,57 +151,86 @@ public class Order implements Serializable {
         }
     }
     
-    // Method to calculate total order amount
+    // Method to calculate total order amount at the products' current prices
+    // Totals are kept up to date on every item change, so this is only needed after price changes
     public double calculateTotal() {
-        totalAmount = 0.0;
-        for (Map.Entry<Product, Integer> entry : orderItems.entrySet()) {
-            Product product = entry.getKey();
-            Integer quantity = entry.getValue();
-            totalAmount += product.getPrice() * quantity;
+        long oldTotalCents = lines.getTotalCents();
+        int oldItemCount = lines.getItemCount();
+        lines.reprice();
+        totalsChanged(oldTotalCents, oldItemCount);
+        return getTotalAmount();
+    }
+    
+    // Notifies listeners if an item change moved the total or the item count
+    private void totalsChanged(long oldTotalCents, int oldItemCount) {
+        Set<OrderChangeListener> listeners = changeListeners;
+        if (listeners != null && (oldTotalCents != lines.getTotalCents() || oldItemCount != lines.getItemCount())) {
+            for (OrderChangeListener listener : listeners) {
+                listener.onTotalChanged(this, oldTotalCents / 100.0, getTotalAmount());
+            }
+        }
+    }
+    
+    // Method to update order status from whatever it currently is
+    // Returns false if the current status does not allow moving to newStatus
+    public boolean updateStatus(OrderStatus newStatus) {
+        while (true) {
+            OrderStatus current = status.get();
+            if (!current.canTransitionTo(newStatus)) {
+                return false;
+            }
+            if (tryTransition(current, newStatus)) {
+                return true;
+            }
         }
-        return totalAmount;
     }
     
-    // Method to update order status
-    public void updateStatus(OrderStatus newStatus) {
-        OrderStatus oldStatus = this.status;
-        this.status = newStatus;
-        System.out.println("Order " + orderId + " status updated from " + 
-                         oldStatus + " to " + newStatus);
+    // Method to move the order from an expected status to a new one
+    // Returns false if the order is no longer in the expected status or the transition is not allowed
+    public boolean tryTransition(OrderStatus expectedStatus, OrderStatus newStatus) {
+        if (!expectedStatus.canTransitionTo(newStatus) || !status.compareAndSet(expectedStatus, newStatus)) {
+            return false;
+        }
+        
+        EventPublisher.publish(DomainEvent.orderStatusChanged(orderId, expectedStatus, newStatus));
         
-        // Additional logic based on the new status
-        if (newStatus == OrderStatus.DELIVERED) {
-            // Mark as complete in system, etc.
+        Set<OrderChangeListener> listeners = changeListeners;
+        if (listeners != null) {
+            for (OrderChangeListener listener : listeners) {
+                listener.onStatusChanged(this, expectedStatus, newStatus);
+            }
         }
+        return true;
     }
     
     // Method to add item to order
     public void addItem(Product product, int quantity) {
-        int currentQuantity = orderItems.getOrDefault(product, 0);
-        orderItems.put(product, currentQuantity + quantity);
-        calculateTotal(); // Recalculate total
+        long oldTotalCents = lines.getTotalCents();
+        int oldItemCount = lines.getItemCount();
+        lines.add(product, quantity);
+        totalsChanged(oldTotalCents, oldItemCount);
     }
     
     // Method to remove item from order
     public void removeItem(Product product) {
-        orderItems.remove(product);
-        calculateTotal(); // Recalculate total
+        long oldTotalCents = lines.getTotalCents();
+        int oldItemCount = lines.getItemCount();
+        lines.remove(product);
+        totalsChanged(oldTotalCents, oldItemCount);
     }
     
     // Method to update item quantity
     public void updateItemQuantity(Product product, int newQuantity) {
-        if (newQuantity <= 0) {
-            orderItems.remove(product);
-        } else {
-            orderItems.put(product, newQuantity);
-        }
-        calculateTotal(); // Recalculate total
+        long oldTotalCents = lines.getTotalCents();
+        int oldItemCount = lines.getItemCount();
+        lines.set(product, newQuantity);
+        totalsChanged(oldTotalCents, oldItemCount);
     }
     
     // Method to mark order as paid
     public void markAsPaid() {
         this.isPaid = true;
-        System.out.println("Order " + orderId + " marked as paid");
+        EventPublisher.publish(DomainEvent.orderPaid(orderId));
     }
     
     // Method to generate invoice
@@ -148,9 +241,9 @@ public class Order implements Serializable {
         invoice.put("orderDate", orderDate);
         invoice.put("customerUserId", placedByUserId);
         invoice.put("supplierUserId", supplierUserId);
-        invoice.put("items", orderItems);
-        invoice.put("totalAmount", totalAmount);
-        invoice.put("status", status);
+        invoice.put("items", new HashMap<>(getOrderItems()));
+        invoice.put("totalAmount", getTotalAmount());
+        invoice.put("status", status.get());
         invoice.put("isPaid", isPaid);
         
         return invoice;
@@ -161,8 +254,12 @@ public class Order implements Serializable {
         return orderId;
     }
     
+    // Read-only view of the order's items, changes go through addItem, removeItem and updateItemQuantity
     public Map<Product, Integer> getOrderItems() {
-        return orderItems;
+        if (itemsView == null) {
+            itemsView = new ItemsView();
+        }
+        return itemsView;
     }
     
     public String getPlacedByUserId() {
@@ -170,7 +267,15 @@ public class Order implements Serializable {
     }
     
     public void setPlacedByUserId(String placedByUserId) {
+        String oldPlacedByUserId = this.placedByUserId;
         this.placedByUserId = placedByUserId;
+        
+        Set<OrderChangeListener> listeners = changeListeners;
+        if (listeners != null && !Objects.equals(oldPlacedByUserId, placedByUserId)) {
+            for (OrderChangeListener listener : listeners) {
+                listener.onPlacedByChanged(this, oldPlacedByUserId, placedByUserId);
+            }
+        }
     }
     
     public String getSupplierUserId() {
@@ -178,7 +283,15 @@ public class Order implements Serializable {
     }
     
     public void setSupplierUserId(String supplierUserId) {
+        String oldSupplierUserId = this.supplierUserId;
         this.supplierUserId = supplierUserId;
+        
+        Set<OrderChangeListener> listeners = changeListeners;
+        if (listeners != null && !Objects.equals(oldSupplierUserId, supplierUserId)) {
+            for (OrderChangeListener listener : listeners) {
+                listener.onSupplierChanged(this, oldSupplierUserId, supplierUserId);
+            }
+        }
     }
     
     public Date getOrderDate() {
@@ -194,7 +307,7 @@ public class Order implements Serializable {
     }
     
     public OrderStatus getStatus() {
-        return status;
+        return status.get();
     }
     
     public boolean isPaid() {
@@ -202,7 +315,17 @@ public class Order implements Serializable {
     }
     
     public double getTotalAmount() {
-        return totalAmount;
+        return lines.getTotalCents() / 100.0;
+    }
+    
+    // Exact order total in cents
+    public long getTotalCents() {
+        return lines.getTotalCents();
+    }
+    
+    // Total number of units across all items
+    public int getItemCount() {
+        return lines.getItemCount();
     }
     
     public String getShippingAddress() {
@@ -242,9 +365,24 @@ public class Order implements Serializable {
         this.notes = notes;
     }
     
+    // Method to register a listener for status, supplier and placer changes
+    public synchronized void addChangeListener(OrderChangeListener listener) {
+        if (changeListeners == null) {
+            changeListeners = new CopyOnWriteArraySet<>();
+        }
+        changeListeners.add(listener);
+    }
+    
+    // Method to unregister a change listener
+    public synchronized void removeChangeListener(OrderChangeListener listener) {
+        if (changeListeners != null) {
+            changeListeners.remove(listener);
+        }
+    }
+    
     @Override
     public String toString() {
         return String.format("Order[id=%s, items=%d, total=%.2f, status=%s]",
-                            orderId, orderItems.size(), totalAmount, status);
+                            orderId, lines.size(), getTotalAmount(), status.get());
     }
 }
\ No newline at end of file
@@ -0,0 +1,44 @@
+package com.smartsupply.model;
+
+/**
+ * Interface for objects that index or aggregate orders by their mutable fields
+ * Listeners are notified after the order field has been changed
+ */
+public interface OrderChangeListener {
+    
+    /**
+     * Called after the status of an order has changed
+     * @param order The order that changed
+     * @param oldStatus Status before the change
+     * @param newStatus Status after the change
+     */
+    default void onStatusChanged(Order order, OrderStatus oldStatus, OrderStatus newStatus) {
+    }
+    
+    /**
+     * Called after the supplier of an order has changed
+     * @param order The order that changed
+     * @param oldSupplierUserId Supplier before the change
+     * @param newSupplierUserId Supplier after the change
+     */
+    default void onSupplierChanged(Order order, String oldSupplierUserId, String newSupplierUserId) {
+    }
+    
+    /**
+     * Called after the user who placed an order has changed
+     * @param order The order that changed
+     * @param oldPlacedByUserId Placing user before the change
+     * @param newPlacedByUserId Placing user after the change
+     */
+    default void onPlacedByChanged(Order order, String oldPlacedByUserId, String newPlacedByUserId) {
+    }
+    
+    /**
+     * Called after the items of an order changed its total amount or item count
+     * @param order The order that changed
+     * @param oldTotal Total amount before the change
+     * @param newTotal Total amount after the change
+     */
+    default void onTotalChanged(Order order, double oldTotal, double newTotal) {
+    }
+}
\ No newline at end of file
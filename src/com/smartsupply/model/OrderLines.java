@@ -0,0 +1,166 @@
+package com.smartsupply.model;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Compact line-item storage backing Order
+ * Lines are kept in parallel arrays of product, quantity and unit price in
+ * cents; the order total and item count are updated with every change, so
+ * building an order of n lines costs O(n) and money adds up exactly
+ * Small orders find a product's line by scanning; larger ones build a
+ * product-to-line index on first use
+ */
+class OrderLines implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private static final int INITIAL_CAPACITY = 4;
+    private static final int INDEX_THRESHOLD = 8;
+    
+    private Product[] products;
+    private int[] quantities;
+    private long[] unitCents;
+    private int size;
+    private long totalCents;
+    private int itemCount;
+    private transient Map<Product, Integer> index; // Product -> line, only for larger orders
+    
+    // Default constructor
+    OrderLines() {
+        this.products = new Product[INITIAL_CAPACITY];
+        this.quantities = new int[INITIAL_CAPACITY];
+        this.unitCents = new long[INITIAL_CAPACITY];
+    }
+    
+    // Method to find the line of a product, or -1 if the order does not contain it
+    int indexOf(Object product) {
+        if (size > INDEX_THRESHOLD) {
+            if (index == null) {
+                index = new HashMap<>(size * 2);
+                for (int i = 0; i < size; i++) {
+                    index.put(products[i], i);
+                }
+            }
+            Integer line = index.get(product);
+            return (line != null) ? line : -1;
+        }
+        
+        for (int i = 0; i < size; i++) {
+            if (products[i].equals(product)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+    
+    // Method to add units of a product, merging with an existing line
+    void add(Product product, int quantity) {
+        int line = indexOf(product);
+        if (line < 0) {
+            append(product, quantity);
+        } else {
+            setQuantity(line, quantities[line] + quantity);
+        }
+    }
+    
+    // Method to set the quantity of a product, a quantity of zero or less removes the line
+    void set(Product product, int quantity) {
+        int line = indexOf(product);
+        if (quantity <= 0) {
+            if (line >= 0) {
+                removeLine(line);
+            }
+        } else if (line < 0) {
+            append(product, quantity);
+        } else {
+            setQuantity(line, quantity);
+        }
+    }
+    
+    // Method to remove the line of a product
+    void remove(Product product) {
+        int line = indexOf(product);
+        if (line >= 0) {
+            removeLine(line);
+        }
+    }
+    
+    // Method to re-read every unit price from its product and recompute the totals
+    void reprice() {
+        totalCents = 0;
+        itemCount = 0;
+        for (int i = 0; i < size; i++) {
+            unitCents[i] = products[i].getPriceCents();
+            totalCents += unitCents[i] * quantities[i];
+            itemCount += quantities[i];
+        }
+    }
+    
+    int size() {
+        return size;
+    }
+    
+    Product productAt(int line) {
+        return products[line];
+    }
+    
+    int quantityAt(int line) {
+        return quantities[line];
+    }
+    
+    long getTotalCents() {
+        return totalCents;
+    }
+    
+    int getItemCount() {
+        return itemCount;
+    }
+    
+    private void append(Product product, int quantity) {
+        if (size == products.length) {
+            int capacity = size * 2;
+            products = Arrays.copyOf(products, capacity);
+            quantities = Arrays.copyOf(quantities, capacity);
+            unitCents = Arrays.copyOf(unitCents, capacity);
+        }
+        
+        products[size] = product;
+        quantities[size] = quantity;
+        unitCents[size] = product.getPriceCents();
+        if (index != null) {
+            index.put(product, size);
+        }
+        size++;
+        
+        totalCents += unitCents[size - 1] * quantity;
+        itemCount += quantity;
+    }
+    
+    private void setQuantity(int line, int quantity) {
+        int delta = quantity - quantities[line];
+        quantities[line] = quantity;
+        totalCents += unitCents[line] * delta;
+        itemCount += delta;
+    }
+    
+    // Removes a line by moving the last line into its place
+    private void removeLine(int line) {
+        totalCents -= unitCents[line] * quantities[line];
+        itemCount -= quantities[line];
+        if (index != null) {
+            index.remove(products[line]);
+        }
+        
+        int last = --size;
+        if (line != last) {
+            products[line] = products[last];
+            quantities[line] = quantities[last];
+            unitCents[line] = unitCents[last];
+            if (index != null) {
+                index.put(products[line], line);
+            }
+        }
+        products[last] = null;
+    }
+}
\ No newline at end of file
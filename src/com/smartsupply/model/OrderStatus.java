@@ -1,5 +1,10 @@
 package com.smartsupply.model;
 
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
 /**
  * Enum representing different possible states of an order
  */
@@ -14,6 +19,19 @@ public enum OrderStatus {
     
     private final String description;
     
+    // Allowed lifecycle transitions; CANCELLED and RETURNED are final
+    private static final Map<OrderStatus, Set<OrderStatus>> TRANSITIONS = new EnumMap<>(OrderStatus.class);
+    
+    static {
+        TRANSITIONS.put(PLACED, EnumSet.of(PROCESSING, SHIPPED, CANCELLED));
+        TRANSITIONS.put(PROCESSING, EnumSet.of(SHIPPED, CANCELLED));
+        TRANSITIONS.put(SHIPPED, EnumSet.of(IN_TRANSIT, DELIVERED));
+        TRANSITIONS.put(IN_TRANSIT, EnumSet.of(DELIVERED));
+        TRANSITIONS.put(DELIVERED, EnumSet.of(RETURNED));
+        TRANSITIONS.put(CANCELLED, EnumSet.noneOf(OrderStatus.class));
+        TRANSITIONS.put(RETURNED, EnumSet.noneOf(OrderStatus.class));
+    }
+    
     private OrderStatus(String description) {
         this.description = description;
     }
@@ -22,6 +40,16 @@ public enum OrderStatus {
         return description;
     }
     
+    // Method to check whether an order in this status may move to the given status
+    public boolean canTransitionTo(OrderStatus next) {
+        return TRANSITIONS.get(this).contains(next);
+    }
+    
+    // Method to check whether no further transitions are possible
+    public boolean isFinal() {
+        return TRANSITIONS.get(this).isEmpty();
+    }
+    
     @Override
     public String toString() {
         return description;
@@ -5,7 +5,10 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArraySet;
+import com.smartsupply.util.BarcodeCodec;
 
 /**
  * Class representing a product in the inventory system
@@ -22,6 +25,9 @@ public class Product implements Serializable {
     private Date createdDate;
     private boolean active;
     private Map<String, Object> attributes; // For flexible product attributes
+    private transient volatile Set<ProductChangeListener> changeListeners;
+    transient int handle; // Set by ProductInterner on the canonical instance only
+    transient volatile Product canonical; // This product or its canonical instance, null until interned
     
     // Nested class for product dimensions - demonstrates nested class requirement
     public static class Dimensions {
@@ -142,35 +148,39 @@ public class Product implements Serializable {
         }
     }
     
-    // Method to generate a barcode
-    public String generateBarcode() {
+    // Method to generate a barcode, issued once from BarcodeCodec's sequence
+    public synchronized String generateBarcode() {
         if (this.barcode == null) {
-            String processed = productId.replace("-", "");
-            int length = Math.min(processed.length(), 8);
-            this.barcode = "BAR-" + processed.substring(0, length).toUpperCase();
+            this.barcode = BarcodeCodec.nextBarcode();
         }
         return this.barcode;
     }
     
-    // Method to generate a QR code
-    public String generateQRCode() {
+    // Method to generate a QR code, carrying the same sequence number as the barcode
+    public synchronized String generateQRCode() {
         if (this.qrCode == null) {
-            String processed = productId.replace("-", "");
-            StringBuilder qrBuilder = new StringBuilder("QR-");
-            
-            // Add as many characters as available from the processed ID
-            qrBuilder.append(processed.toUpperCase());
-            
-            // If the processed ID is shorter than 12 chars, pad with random digits
-            while (qrBuilder.length() < 15) { // "QR-" is 3 chars + 12 more needed
-                qrBuilder.append((int)(Math.random() * 10));
-            }
-            
-            this.qrCode = qrBuilder.toString();
+            this.qrCode = BarcodeCodec.qrCodeFor(generateBarcode());
         }
         return this.qrCode;
     }
     
+    // Method to get the one canonical instance for this product's ID, see ProductInterner
+    // The ID of an interned product must not change
+    public Product intern() {
+        Product c = canonical;
+        return (c != null) ? c : ProductInterner.intern(this);
+    }
+    
+    // Method to get the int handle of this product's canonical instance
+    public int getHandle() {
+        return intern().handle;
+    }
+    
+    // Method to get the canonical product for a handle, or null if there is none
+    public static Product forHandle(int handle) {
+        return ProductInterner.forHandle(handle);
+    }
+    
     // Method to get complete product details
     public Map<String, Object> getProductDetails() {
         Map<String, Object> details = new HashMap<>();
@@ -201,7 +211,11 @@ public class Product implements Serializable {
         return productId;
     }
     
+    // The ID keys the interner and every inventory's slot index, so it is fixed once interned
     public void setProductId(String productId) {
+        if (canonical != null) {
+            throw new IllegalStateException("The ID of interned product " + this.productId + " cannot change");
+        }
         this.productId = productId;
     }
     
@@ -217,8 +231,21 @@ public class Product implements Serializable {
         return price;
     }
     
+    // Price in whole cents, used wherever money is accumulated
+    public long getPriceCents() {
+        return Math.round(price * 100);
+    }
+    
     public void setPrice(double price) {
+        double oldPrice = this.price;
         this.price = price;
+        
+        Set<ProductChangeListener> listeners = changeListeners;
+        if (listeners != null && oldPrice != price) {
+            for (ProductChangeListener listener : listeners) {
+                listener.onPriceChanged(this, oldPrice, price);
+            }
+        }
     }
     
     public String getDescription() {
@@ -234,7 +261,15 @@ public class Product implements Serializable {
     }
     
     public void setCategory(String category) {
+        String oldCategory = this.category;
         this.category = category;
+        
+        Set<ProductChangeListener> listeners = changeListeners;
+        if (listeners != null && !Objects.equals(oldCategory, category)) {
+            for (ProductChangeListener listener : listeners) {
+                listener.onCategoryChanged(this, oldCategory, category);
+            }
+        }
     }
     
     public String getSupplierUserId() {
@@ -242,7 +277,15 @@ public class Product implements Serializable {
     }
     
     public void setSupplierUserId(String supplierUserId) {
+        String oldSupplierUserId = this.supplierUserId;
         this.supplierUserId = supplierUserId;
+        
+        Set<ProductChangeListener> listeners = changeListeners;
+        if (listeners != null && !Objects.equals(oldSupplierUserId, supplierUserId)) {
+            for (ProductChangeListener listener : listeners) {
+                listener.onSupplierChanged(this, oldSupplierUserId, supplierUserId);
+            }
+        }
     }
     
     public String getBarcode() {
@@ -253,10 +296,25 @@ public class Product implements Serializable {
         return (qrCode != null) ? qrCode : generateQRCode();
     }
     
+    // Setters for codes issued earlier and read back from disk; the codes are reserved so they are never issued again
+    public synchronized void setBarcode(String barcode) {
+        this.barcode = barcode;
+        BarcodeCodec.reserve(barcode);
+    }
+    
+    public synchronized void setQrCode(String qrCode) {
+        this.qrCode = qrCode;
+        BarcodeCodec.reserve(qrCode);
+    }
+    
     public Date getCreatedDate() {
         return createdDate;
     }
     
+    public void setCreatedDate(Date createdDate) {
+        this.createdDate = createdDate;
+    }
+    
     public boolean isActive() {
         return active;
     }
@@ -289,6 +347,21 @@ public class Product implements Serializable {
         this.attributes.remove(key);
     }
     
+    // Method to register a listener for price and category changes
+    public synchronized void addChangeListener(ProductChangeListener listener) {
+        if (changeListeners == null) {
+            changeListeners = new CopyOnWriteArraySet<>();
+        }
+        changeListeners.add(listener);
+    }
+    
+    // Method to unregister a change listener
+    public synchronized void removeChangeListener(ProductChangeListener listener) {
+        if (changeListeners != null) {
+            changeListeners.remove(listener);
+        }
+    }
+    
     @Override
     public boolean equals(Object obj) {
         if (this == obj) return true;
@@ -299,7 +372,13 @@ public class Product implements Serializable {
     
     @Override
     public int hashCode() {
-        return Objects.hash(productId);
+        return 31 + Objects.hashCode(productId); // Same value as Objects.hash(productId), without the varargs array
+    }
+    
+    // A product read back from a stream is replaced by the canonical instance for its ID
+    // The stream's details are not applied; importers that should win set them explicitly
+    private Object readResolve() {
+        return (productId != null) ? intern() : this;
     }
     
     @Override
@@ -0,0 +1,35 @@
+package com.smartsupply.model;
+
+/**
+ * Interface for objects that keep derived state about products
+ * Listeners are notified after a product field has been changed
+ */
+public interface ProductChangeListener {
+    
+    /**
+     * Called after the price of a product has changed
+     * @param product The product that changed
+     * @param oldPrice Price before the change
+     * @param newPrice Price after the change
+     */
+    default void onPriceChanged(Product product, double oldPrice, double newPrice) {
+    }
+    
+    /**
+     * Called after the category of a product has changed
+     * @param product The product that changed
+     * @param oldCategory Category before the change
+     * @param newCategory Category after the change
+     */
+    default void onCategoryChanged(Product product, String oldCategory, String newCategory) {
+    }
+    
+    /**
+     * Called after the supplier of a product has changed
+     * @param product The product that changed
+     * @param oldSupplierUserId Supplier before the change
+     * @param newSupplierUserId Supplier after the change
+     */
+    default void onSupplierChanged(Product product, String oldSupplierUserId, String newSupplierUserId) {
+    }
+}
\ No newline at end of file
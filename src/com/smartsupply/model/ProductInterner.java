@@ -0,0 +1,99 @@
+package com.smartsupply.model;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Process-wide table of canonical products, one per productId
+ * Each canonical product is given an int handle (1, 2, 3, ...) so per-product
+ * tables can be keyed by a primitive instead of by Product
+ * Entries are weak: a canonical product nothing else refers to any more is
+ * dropped, and interning its ID again makes a new canonical product with a
+ * new handle. Handles are never reused, so a stale handle finds nothing
+ * rather than another product. Handles are not persisted; a product read
+ * back from disk is interned again
+ */
+final class ProductInterner {
+    private static final ConcurrentMap<String, Entry> byId = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<Integer, Entry> byHandle = new ConcurrentHashMap<>();
+    private static final ReferenceQueue<Product> collected = new ReferenceQueue<>();
+    private static final AtomicInteger lastHandle = new AtomicInteger();
+    
+    // Nested class for a weak reference to a canonical product, remembering where it is indexed
+    private static final class Entry extends WeakReference<Product> {
+        private final String productId;
+        private final int handle;
+        
+        Entry(Product product, int handle) {
+            super(product, collected);
+            this.productId = product.getProductId();
+            this.handle = handle;
+        }
+    }
+    
+    private ProductInterner() {
+    }
+    
+    // Method to get the canonical product with the same productId, making this one canonical if there is none
+    static Product intern(Product product) {
+        Product canonical = product.canonical;
+        if (canonical != null) {
+            return canonical;
+        }
+        
+        String productId = product.getProductId();
+        if (productId == null) {
+            throw new IllegalArgumentException("A product needs an ID to be interned");
+        }
+        expungeCollected();
+        
+        // Threads interning the same copy take turns, so only one of them can make it canonical
+        synchronized (product) {
+            if (product.canonical != null) {
+                return product.canonical;
+            }
+            
+            while (true) {
+                Entry entry = byId.get(productId);
+                canonical = (entry != null) ? entry.get() : null;
+                if (canonical != null) {
+                    break;
+                }
+                
+                // No live canonical product, try to make this one canonical
+                Entry fresh = new Entry(product, lastHandle.incrementAndGet());
+                product.handle = fresh.handle;
+                boolean won = (entry == null) ? byId.putIfAbsent(productId, fresh) == null
+                                              : byId.replace(productId, entry, fresh);
+                if (won) {
+                    byHandle.put(fresh.handle, fresh);
+                    canonical = product;
+                    break;
+                }
+                product.handle = 0; // Another thread got there first, try again with its product
+            }
+            
+            // A copy holds on to its canonical product, so the canonical one outlives every copy
+            product.canonical = canonical;
+        }
+        return canonical;
+    }
+    
+    // Method to get the canonical product for a handle, or null if it was dropped or never given out
+    static Product forHandle(int handle) {
+        Entry entry = byHandle.get(handle);
+        return (entry != null) ? entry.get() : null;
+    }
+    
+    // Removes the entries of canonical products that have been garbage collected
+    private static void expungeCollected() {
+        Entry entry;
+        while ((entry = (Entry) collected.poll()) != null) {
+            byId.remove(entry.productId, entry);
+            byHandle.remove(entry.handle, entry);
+        }
+    }
+}
\ No newline at end of file
@@ -1,5 +1,8 @@
 package com.smartsupply.model;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
@@ -10,6 +13,8 @@ import java.util.HashMap;
  * Retailer class representing retail store managers in the supply chain
  */
 public class Retailer extends User {
+    private static final long serialVersionUID = -4767242284554510261L;
+    
     private String storeId;
     private String location;
     private double salesTarget;
@@ -157,6 +162,26 @@ public class Retailer extends User {
         specializations.remove(specialization);
     }
     
+    @Override
+    public void writeFields(DataOutput out) throws IOException {
+        super.writeFields(out);
+        writeString(out, storeId);
+        writeString(out, location);
+        out.writeDouble(salesTarget);
+        out.writeDouble(currentSales);
+        writeStringList(out, specializations);
+    }
+    
+    @Override
+    public void readFields(DataInput in) throws IOException {
+        super.readFields(in);
+        this.storeId = readString(in);
+        this.location = readString(in);
+        this.salesTarget = in.readDouble();
+        this.currentSales = in.readDouble();
+        this.specializations = readStringList(in);
+    }
+    
     @Override
     public String toString() {
         return String.format("Retailer[id=%s, name=%s, store=%s, sales=%.2f]", 
@@ -0,0 +1,49 @@
+package com.smartsupply.model;
+
+/**
+ * Interface for objects that need to follow stock changes at a location
+ * Listeners are notified after the change has been applied to the inventory
+ */
+public interface StockChangeListener {
+    
+    /**
+     * Called after stock of a product has been added or removed
+     * @param inventory The inventory that changed
+     * @param product The product whose stock changed
+     * @param delta Units added (positive) or removed (negative)
+     */
+    default void onStockChanged(Inventory inventory, Product product, int delta) {
+    }
+    
+    /**
+     * Called after stock of several products has been changed in one step
+     * By default each changed line is passed on to onStockChanged
+     * @param inventory The inventory that changed
+     * @param products The products whose stock changed
+     * @param deltas Units added (positive) or removed (negative), by index into products
+     */
+    default void onStockChanged(Inventory inventory, Product[] products, int[] deltas) {
+        for (int i = 0; i < products.length; i++) {
+            if (deltas[i] != 0) {
+                onStockChanged(inventory, products[i], deltas[i]);
+            }
+        }
+    }
+    
+    /**
+     * Called after the reorder threshold of a product has been set
+     * @param inventory The inventory that changed
+     * @param product The product whose threshold changed
+     * @param threshold The new threshold
+     */
+    default void onThresholdChanged(Inventory inventory, Product product, int threshold) {
+    }
+    
+    /**
+     * Called after a product has been removed from the inventory
+     * @param inventory The inventory that changed
+     * @param product The product that was removed
+     */
+    default void onProductRemoved(Inventory inventory, Product product) {
+    }
+}
\ No newline at end of file
@@ -0,0 +1,53 @@
+package com.smartsupply.model;
+
+/**
+ * Interface for a write-ahead log of the stock changes at a location
+ * The log methods are called under the product's lock before the change is
+ * applied, so the records of one product are logged in the order they are
+ * applied and a log that cannot take a record stops the change by throwing.
+ * Each returns a ticket that is passed to awaitDurable once the lock is
+ * released; a ticket of 0 means there is nothing to wait for
+ */
+public interface StockJournal {
+    
+    /**
+     * Called before stock of a product is added or removed
+     * @param inventory The inventory about to change
+     * @param product The product whose stock changes
+     * @param delta Units added (positive) or removed (negative)
+     * @return The ticket to wait for
+     */
+    long logStockChange(Inventory inventory, Product product, int delta);
+    
+    /**
+     * Called before stock of several products is changed in one step
+     * @param inventory The inventory about to change
+     * @param products The products whose stock changes
+     * @param deltas Units added (positive) or removed (negative), by index into products
+     * @return The ticket to wait for, covering every line
+     */
+    long logStockChanges(Inventory inventory, Product[] products, int[] deltas);
+    
+    /**
+     * Called before the reorder threshold of a product is set
+     * @param inventory The inventory about to change
+     * @param product The product whose threshold changes
+     * @param threshold The new threshold
+     * @return The ticket to wait for
+     */
+    long logThreshold(Inventory inventory, Product product, int threshold);
+    
+    /**
+     * Called before a product is removed from the inventory
+     * @param inventory The inventory about to change
+     * @param product The product being removed
+     * @return The ticket to wait for
+     */
+    long logProductRemoved(Inventory inventory, Product product);
+    
+    /**
+     * Waits until the records up to a ticket are durable
+     * @param ticket A ticket returned by one of the log methods
+     */
+    void awaitDurable(long ticket);
+}
\ No newline at end of file
@@ -0,0 +1,295 @@
+package com.smartsupply.model;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Compact column store backing Inventory
+ * Each product is given a dense int slot, found through the product's
+ * interned handle (see ProductInterner) in a per-table open-addressing index
+ * of primitive longs, so the index is sized by the products this table holds
+ * and lookups neither lock nor allocate; its stock, reorder threshold,
+ * recommended level and flags are kept side by side as primitive ints in
+ * fixed-size pages, so a full scan walks contiguous memory instead of map entries
+ * Valuation bookkeeping (the unit price and category a slot was last valued at)
+ * sits in parallel pages that are only touched under the slot's stripe lock
+ */
+class StockTable implements Serializable {
+    private static final long serialVersionUID = 1L;
+    
+    // Column offsets within a slot
+    static final int STOCK = 0;
+    static final int THRESHOLD = 1;
+    static final int RECOMMENDED = 2;
+    static final int FLAGS = 3;
+    private static final int COLUMNS = 4;
+    
+    // Flag bits
+    static final int LISTED = 1; // Product has been stocked at this location
+    static final int LOW = 2;    // Product is in the low-stock index
+    
+    // Pages never move once allocated, so a slot's cells stay valid while the table grows
+    private static final int PAGE_SHIFT = 10;
+    private static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+    
+    // Striped locks for slot bookkeeping that must stay in step with the cells
+    // Exactly 64, so a set of stripes fits in one long bit mask
+    static final int STRIPES = 64;
+    
+    private static final int INITIAL_INDEX_CAPACITY = 16;
+    
+    private transient volatile AtomicLongArray slotIndex; // Cells of handle << 32 | slot, 0 for an empty cell
+    private final AtomicInteger nextSlot;
+    private volatile AtomicIntegerArray[] cellPages;
+    private volatile AtomicReferenceArray<Product>[] productPages;
+    private volatile long[][] unitCentsPages;
+    private volatile String[][] categoryPages;
+    private final ReentrantLock[] stripes;
+    
+    // Default constructor
+    StockTable() {
+        this.slotIndex = new AtomicLongArray(INITIAL_INDEX_CAPACITY);
+        this.nextSlot = new AtomicInteger();
+        this.cellPages = new AtomicIntegerArray[0];
+        this.productPages = newProductPages(0);
+        this.unitCentsPages = new long[0][];
+        this.categoryPages = new String[0][];
+        this.stripes = new ReentrantLock[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+    
+    // Method to find the slot of a product, or -1 if it has none
+    int slotOf(Product product) {
+        return slotOfHandle(product.getHandle());
+    }
+    
+    // Method to find the slot of a product, allocating one if needed
+    // The slot always holds the canonical instance, whichever copy was passed in
+    int slotFor(Product product) {
+        Product canonical = product.intern();
+        int handle = canonical.getHandle();
+        int slot = slotOfHandle(handle);
+        return (slot >= 0) ? slot : allocate(handle, canonical);
+    }
+    
+    // Method to find the slot of a product handle, or -1 if it has none
+    // The index is at most half full, so a probe always reaches an empty cell
+    int slotOfHandle(int handle) {
+        AtomicLongArray index = slotIndex;
+        int mask = index.length() - 1;
+        
+        for (int i = spread(handle) & mask; ; i = (i + 1) & mask) {
+            long cell = index.get(i);
+            if (cell == 0) {
+                return -1;
+            }
+            if ((int) (cell >>> 32) == handle) {
+                return (int) cell;
+            }
+        }
+    }
+    
+    // Method to get the product held in a slot (null if the slot is still being allocated)
+    Product productAt(int slot) {
+        AtomicReferenceArray<Product>[] pages = productPages;
+        int page = slot >>> PAGE_SHIFT;
+        return (page < pages.length) ? pages[page].get(slot & PAGE_MASK) : null;
+    }
+    
+    // Method to get the number of allocated slots (upper bound for scans)
+    int capacity() {
+        return nextSlot.get();
+    }
+    
+    // Method to get the number of products in the table
+    int size() {
+        return nextSlot.get();
+    }
+    
+    // Cell accessors
+    int get(int slot, int column) {
+        return cellPages[slot >>> PAGE_SHIFT].get(cellIndex(slot, column));
+    }
+    
+    void set(int slot, int column, int value) {
+        cellPages[slot >>> PAGE_SHIFT].set(cellIndex(slot, column), value);
+    }
+    
+    // Method to set flag bits on a slot, returns true if this call changed them
+    boolean setFlags(int slot, int flags) {
+        AtomicIntegerArray page = cellPages[slot >>> PAGE_SHIFT];
+        int index = cellIndex(slot, FLAGS);
+        
+        while (true) {
+            int current = page.get(index);
+            if ((current & flags) == flags) {
+                return false;
+            }
+            if (page.compareAndSet(index, current, current | flags)) {
+                return true;
+            }
+        }
+    }
+    
+    // Method to clear flag bits on a slot, returns true if this call changed them
+    boolean clearFlags(int slot, int flags) {
+        AtomicIntegerArray page = cellPages[slot >>> PAGE_SHIFT];
+        int index = cellIndex(slot, FLAGS);
+        
+        while (true) {
+            int current = page.get(index);
+            if ((current & flags) == 0) {
+                return false;
+            }
+            if (page.compareAndSet(index, current, current & ~flags)) {
+                return true;
+            }
+        }
+    }
+    
+    // Valuation accessors, callers must hold lockFor(slot)
+    long getUnitCents(int slot) {
+        return unitCentsPages[slot >>> PAGE_SHIFT][slot & PAGE_MASK];
+    }
+    
+    void setUnitCents(int slot, long unitCents) {
+        unitCentsPages[slot >>> PAGE_SHIFT][slot & PAGE_MASK] = unitCents;
+    }
+    
+    String getValuedCategory(int slot) {
+        return categoryPages[slot >>> PAGE_SHIFT][slot & PAGE_MASK];
+    }
+    
+    void setValuedCategory(int slot, String category) {
+        categoryPages[slot >>> PAGE_SHIFT][slot & PAGE_MASK] = category;
+    }
+    
+    // Method to get the lock guarding a slot's bookkeeping
+    ReentrantLock lockFor(int slot) {
+        return stripes[slot & (STRIPES - 1)];
+    }
+    
+    // Method to get the stripe number of a slot, used to take several stripes in a fixed order
+    static int stripeOf(int slot) {
+        return slot & (STRIPES - 1);
+    }
+    
+    // Method to get a lock by stripe number
+    ReentrantLock stripe(int stripe) {
+        return stripes[stripe];
+    }
+    
+    // Method to check flag bits on a slot
+    boolean hasFlags(int slot, int flags) {
+        return (get(slot, FLAGS) & flags) == flags;
+    }
+    
+    private static int cellIndex(int slot, int column) {
+        return (slot & PAGE_MASK) * COLUMNS + column;
+    }
+    
+    // Allocates a slot unless another thread got there first; the cells are ready before the slot is indexed
+    private synchronized int allocate(int handle, Product product) {
+        int existing = slotOfHandle(handle);
+        if (existing >= 0) {
+            return existing;
+        }
+        
+        int slot = nextSlot.get();
+        ensurePage(slot >>> PAGE_SHIFT);
+        productPages[slot >>> PAGE_SHIFT].set(slot & PAGE_MASK, product);
+        nextSlot.set(slot + 1);
+        index(handle, slot);
+        return slot;
+    }
+    
+    // Caller holds the table's lock, so a grown index never misses a concurrent entry
+    // Slots are indexed in order, so slot + 1 is the number of entries once this one is in
+    private void index(int handle, int slot) {
+        AtomicLongArray index = slotIndex;
+        if ((slot + 1) * 2 > index.length()) {
+            AtomicLongArray grown = new AtomicLongArray(index.length() * 2);
+            for (int i = 0; i < index.length(); i++) {
+                long cell = index.get(i);
+                if (cell != 0) {
+                    insert(grown, cell);
+                }
+            }
+            index = grown;
+        }
+        
+        insert(index, ((long) handle << 32) | slot);
+        slotIndex = index; // Volatile write publishes a grown index with the new entry in it
+    }
+    
+    private static void insert(AtomicLongArray index, long cell) {
+        int mask = index.length() - 1;
+        int i = spread((int) (cell >>> 32)) & mask;
+        while (index.get(i) != 0) {
+            i = (i + 1) & mask;
+        }
+        index.set(i, cell);
+    }
+    
+    // Handles are handed out in order, so they are mixed before they pick a cell
+    private static int spread(int handle) {
+        int h = handle * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+    
+    // Handles belong to the running process, so the index is rebuilt from the products in the slots
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        slotIndex = new AtomicLongArray(INITIAL_INDEX_CAPACITY);
+        
+        for (int slot = 0; slot < nextSlot.get(); slot++) {
+            Product product = productAt(slot);
+            if (product != null) {
+                index(product.getHandle(), slot);
+            }
+        }
+    }
+    
+    private synchronized void ensurePage(int page) {
+        if (page < cellPages.length) {
+            return;
+        }
+        
+        int newLength = Math.max(page + 1, cellPages.length * 2);
+        AtomicIntegerArray[] newCells = new AtomicIntegerArray[newLength];
+        AtomicReferenceArray<Product>[] newProducts = newProductPages(newLength);
+        long[][] newUnitCents = new long[newLength][];
+        String[][] newCategories = new String[newLength][];
+        System.arraycopy(cellPages, 0, newCells, 0, cellPages.length);
+        System.arraycopy(productPages, 0, newProducts, 0, productPages.length);
+        System.arraycopy(unitCentsPages, 0, newUnitCents, 0, unitCentsPages.length);
+        System.arraycopy(categoryPages, 0, newCategories, 0, categoryPages.length);
+        
+        for (int i = cellPages.length; i < newLength; i++) {
+            newCells[i] = new AtomicIntegerArray(PAGE_SIZE * COLUMNS);
+            newProducts[i] = new AtomicReferenceArray<>(PAGE_SIZE);
+            newUnitCents[i] = new long[PAGE_SIZE];
+            newCategories[i] = new String[PAGE_SIZE];
+        }
+        
+        // Publish the side pages first so that any slot visible in cellPages has all of its pages
+        unitCentsPages = newUnitCents;
+        categoryPages = newCategories;
+        productPages = newProducts;
+        cellPages = newCells;
+    }
+    
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private static AtomicReferenceArray<Product>[] newProductPages(int length) {
+        return (AtomicReferenceArray<Product>[]) new AtomicReferenceArray[length];
+    }
+}
\ No newline at end of file
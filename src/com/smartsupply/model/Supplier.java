@@ -1,15 +1,22 @@
 package com.smartsupply.model;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
+import com.smartsupply.event.DomainEvent;
+import com.smartsupply.event.EventPublisher;
 
 /**
  * Supplier class representing product suppliers in the supply chain
  */
 public class Supplier extends User {
+    private static final long serialVersionUID = -194637083357519003L;
+    
     private String companyName;
     private String address;
     private List<String> productCategories;
@@ -63,7 +70,7 @@ public class Supplier extends User {
     // Method to update product pricing
     public void updateProductPrice(String productId, double newPrice) {
         productPrices.put(productId, newPrice);
-        System.out.println("Updated price of product " + productId + " to " + newPrice);
+        EventPublisher.publish(DomainEvent.productPriceUpdated(productId, newPrice));
     }
     
     // Varargs method to update multiple product prices at once
@@ -75,7 +82,7 @@ public class Supplier extends User {
                 productPrices.put(productId, price);
             }
         }
-        System.out.println("Updated " + (productInfos.length / 2) + " product prices");
+        EventPublisher.publish(DomainEvent.productPricesUpdated(getUserId(), productInfos.length / 2));
     }
     
     // Method to view current orders
@@ -147,6 +154,26 @@ public class Supplier extends User {
         return productPrices;
     }
     
+    @Override
+    public void writeFields(DataOutput out) throws IOException {
+        super.writeFields(out);
+        writeString(out, companyName);
+        writeString(out, address);
+        writeStringList(out, productCategories);
+        writeDoubleMap(out, productPrices);
+        out.writeDouble(reliabilityScore);
+    }
+    
+    @Override
+    public void readFields(DataInput in) throws IOException {
+        super.readFields(in);
+        this.companyName = readString(in);
+        this.address = readString(in);
+        this.productCategories = readStringList(in);
+        this.productPrices = readDoubleMap(in);
+        this.reliabilityScore = in.readDouble();
+    }
+    
     @Override
     public String toString() {
         return String.format("Supplier[id=%s, name=%s, company=%s, reliability=%.1f]", 
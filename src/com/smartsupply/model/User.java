@@ -1,7 +1,17 @@
 package com.smartsupply.model;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import com.smartsupply.exception.AuthenticationException;
 
 /**
@@ -9,6 +19,9 @@ import com.smartsupply.exception.AuthenticationException;
  * Serves as the base class for all user types
  */
 public abstract class User implements Serializable {
+    // Explicit IDs across the user types keep legacy serialized users.dat files readable for migration
+    private static final long serialVersionUID = -712928002976784386L;
+    
     // Instance variables
     private String userId;
     private String name;
@@ -19,36 +32,64 @@ public abstract class User implements Serializable {
     private Date lastLogin;
     private boolean isActive;
     
-    // Static inner class for user session management
+    /**
+     * Handle for one login of a user
+     * Each login gets its own session with an unguessable token, so any
+     * number of terminals can be logged in at the same time
+     */
     public static class UserSession {
-        private static User currentUser;
-        private static Date loginTime;
+        private static final SecureRandom TOKEN_SOURCE = new SecureRandom();
+        
+        private final String token;
+        private final User user;
+        private final Date loginTime;
+        private volatile long lastAccessMillis;
+        private volatile boolean ended;
         
-        // Method to start a user session
-        public static void startSession(User user) {
-            currentUser = user;
-            loginTime = new Date();
+        // Constructor is private, sessions are started by User.login
+        private UserSession(User user) {
+            byte[] tokenBytes = new byte[24];
+            TOKEN_SOURCE.nextBytes(tokenBytes);
+            this.token = Base64.getUrlEncoder().withoutPadding().encodeToString(tokenBytes);
+            this.user = user;
+            this.loginTime = new Date();
+            this.lastAccessMillis = loginTime.getTime();
         }
         
-        // Method to end a user session
-        public static void endSession() {
-            currentUser = null;
-            loginTime = null;
+        // Method to record activity on the session, which resets its idle time
+        public void touch() {
+            lastAccessMillis = System.currentTimeMillis();
         }
         
-        // Method to check if a session is active
-        public static boolean isSessionActive() {
-            return currentUser != null;
+        // Method to end the session
+        public void end() {
+            ended = true;
         }
         
-        // Method to get the current user
-        public static User getCurrentUser() {
-            return currentUser;
+        // Method to check if the session has not been ended
+        public boolean isActive() {
+            return !ended;
+        }
+        
+        public String getToken() {
+            return token;
+        }
+        
+        public User getUser() {
+            return user;
+        }
+        
+        public Date getLoginTime() {
+            return loginTime;
+        }
+        
+        public long getLastAccessMillis() {
+            return lastAccessMillis;
         }
         
         // Method to get session duration in minutes
-        public static long getSessionDurationMinutes() {
-            if (!isSessionActive()) {
+        public long getSessionDurationMinutes() {
+            if (ended) {
                 return 0;
             }
             return (new Date().getTime() - loginTime.getTime()) / (60 * 1000);
@@ -91,28 +132,28 @@ public abstract class User implements Serializable {
     // Abstract method to be implemented by subclasses
     public abstract boolean hasPermission(String operation);
     
-    // Method to authenticate a user
-    public boolean login(String password) throws AuthenticationException {
+    // Method to check a user's password without starting a session
+    public boolean checkPassword(String password) throws AuthenticationException {
         if (!this.isActive) {
             throw new AuthenticationException("User account is not active");
         }
         
         if (this.password.equals(password)) {
-            this.lastLogin = new Date();
-            UserSession.startSession(this);
             return true;
         }
         
         throw new AuthenticationException("Invalid password");
     }
     
-    // Method to log out a user
-    public void logout() {
-        UserSession.endSession();
+    // Method to authenticate a user, returns a new session for this login
+    public UserSession login(String password) throws AuthenticationException {
+        checkPassword(password);
+        this.lastLogin = new Date();
+        return new UserSession(this);
     }
     
     // Overloaded login method with additional security check
-    public boolean login(String password, String securityToken) throws AuthenticationException {
+    public UserSession login(String password, String securityToken) throws AuthenticationException {
         // Placeholder for additional security validation
         boolean tokenValid = securityToken != null && !securityToken.isEmpty();
         
@@ -184,6 +225,88 @@ public abstract class User implements Serializable {
         this.isActive = isActive;
     }
     
+    // Method to write this user's fields in the binary user format
+    // Subclasses append their own fields after calling super
+    public void writeFields(DataOutput out) throws IOException {
+        writeString(out, userId);
+        writeString(out, name);
+        writeString(out, password);
+        writeString(out, email);
+        writeString(out, phoneNumber);
+        out.writeLong(lastLogin != null ? lastLogin.getTime() : -1L);
+        out.writeBoolean(isActive);
+    }
+    
+    // Method to read fields written by writeFields, in the same order
+    public void readFields(DataInput in) throws IOException {
+        this.userId = readString(in);
+        this.name = readString(in);
+        this.password = readString(in);
+        this.email = readString(in);
+        this.phoneNumber = readString(in);
+        long lastLoginMillis = in.readLong();
+        this.lastLogin = (lastLoginMillis >= 0) ? new Date(lastLoginMillis) : null;
+        this.isActive = in.readBoolean();
+    }
+    
+    // Field helpers shared by the user types; strings and collections are length-prefixed, -1 marks null
+    protected static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+    
+    protected static String readString(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+    
+    protected static void writeStringList(DataOutput out, List<String> values) throws IOException {
+        out.writeInt(values != null ? values.size() : -1);
+        if (values != null) {
+            for (String value : values) {
+                writeString(out, value);
+            }
+        }
+    }
+    
+    protected static List<String> readStringList(DataInput in) throws IOException {
+        int size = in.readInt();
+        List<String> values = new ArrayList<>(Math.max(size, 0));
+        for (int i = 0; i < size; i++) {
+            values.add(readString(in));
+        }
+        return values;
+    }
+    
+    protected static void writeDoubleMap(DataOutput out, Map<String, Double> values) throws IOException {
+        out.writeInt(values != null ? values.size() : -1);
+        if (values != null) {
+            for (Map.Entry<String, Double> entry : values.entrySet()) {
+                writeString(out, entry.getKey());
+                out.writeDouble(entry.getValue());
+            }
+        }
+    }
+    
+    protected static Map<String, Double> readDoubleMap(DataInput in) throws IOException {
+        int size = in.readInt();
+        Map<String, Double> values = new HashMap<>(Math.max(size, 0) * 2);
+        for (int i = 0; i < size; i++) {
+            values.put(readString(in), in.readDouble());
+        }
+        return values;
+    }
+    
     @Override
     public String toString() {
         return String.format("User[id=%s, name=%s, role=%s]", userId, name, role);
@@ -1,15 +1,22 @@
 package com.smartsupply.model;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
+import com.smartsupply.event.DomainEvent;
+import com.smartsupply.event.EventPublisher;
 
 /**
  * WarehouseManager class representing warehouse managers in the supply chain
  */
 public class WarehouseManager extends User {
+    private static final long serialVersionUID = 5664947560752144779L;
+    
     private String warehouseId;
     private String location;
     private double warehouseCapacity; // in cubic meters
@@ -68,7 +75,7 @@ public class WarehouseManager extends User {
     public boolean allocateSpace(String productCategory, double spaceNeeded) {
         if (currentUtilization + spaceNeeded <= warehouseCapacity) {
             currentUtilization += spaceNeeded;
-            System.out.println("Space allocated for " + productCategory + ": " + spaceNeeded + " cubic meters");
+            EventPublisher.publish(DomainEvent.spaceAllocated(null, productCategory, spaceNeeded));
             return true;
         }
         return false;
@@ -79,8 +86,7 @@ public class WarehouseManager extends User {
         Double sectionCapacity = sectionCapacities.get(section);
         if (sectionCapacity != null && spaceNeeded <= sectionCapacity) {
             sectionCapacities.put(section, sectionCapacity - spaceNeeded);
-            System.out.println("Space allocated in section " + section + " for " + 
-                              productCategory + ": " + spaceNeeded + " cubic meters");
+            EventPublisher.publish(DomainEvent.spaceAllocated(section, productCategory, spaceNeeded));
             return true;
         }
         return false;
@@ -155,6 +161,26 @@ public class WarehouseManager extends User {
         return sectionCapacities;
     }
     
+    @Override
+    public void writeFields(DataOutput out) throws IOException {
+        super.writeFields(out);
+        writeString(out, warehouseId);
+        writeString(out, location);
+        out.writeDouble(warehouseCapacity);
+        out.writeDouble(currentUtilization);
+        writeDoubleMap(out, sectionCapacities);
+    }
+    
+    @Override
+    public void readFields(DataInput in) throws IOException {
+        super.readFields(in);
+        this.warehouseId = readString(in);
+        this.location = readString(in);
+        this.warehouseCapacity = in.readDouble();
+        this.currentUtilization = in.readDouble();
+        this.sectionCapacities = readDoubleMap(in);
+    }
+    
     @Override
     public String toString() {
         return String.format("WarehouseManager[id=%s, name=%s, warehouse=%s, utilization=%.1f%%]", 
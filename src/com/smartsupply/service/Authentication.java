@@ -1,68 +1,106 @@
 package com.smartsupply.service;
 
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
-import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 import com.smartsupply.exception.AuthenticationException;
+import com.smartsupply.model.Role;
 import com.smartsupply.model.User;
+import com.smartsupply.model.User.UserSession;
 
 /**
  * Service for user authentication and management
+ * Users are kept in a concurrent directory with secondary indexes by role
+ * and active status, so role checks and per-role listings do not scan all
+ * users. Role and active status changes reach the indexes through updateUser
+ * Logins are tracked as token-keyed sessions, see SessionManager
  */
 public class Authentication {
-    private Map<String, User> users;
-    private String userDataFile;
+    private static final int LOCK_STRIPES = 64;
+    
+    private final ConcurrentMap<String, User> users;
+    private final Map<Role, ConcurrentSkipListMap<String, User>> activeByRole;
+    private final Map<Role, ConcurrentSkipListMap<String, User>> inactiveByRole;
+    private final Object[] locks;
+    private final UserStore userStore;
+    private final SessionManager sessionManager;
     
     // Default constructor
     public Authentication() {
-        this.users = new HashMap<>();
-        this.userDataFile = "users.dat";
+        this(new UserStore("users.dat"));
     }
     
     // Constructor with custom data file
     public Authentication(String userDataFile) {
-        this.users = new HashMap<>();
-        this.userDataFile = userDataFile;
-        loadUsers();
+        this(new UserStore(userDataFile));
+        
+        for (User user : userStore.load().values()) {
+            users.put(user.getUserId(), user);
+            reindex(user);
+        }
+    }
+    
+    // Constructor with the store, used by the public constructors
+    private Authentication(UserStore userStore) {
+        this.userStore = userStore;
+        this.sessionManager = new SessionManager();
+        this.users = new ConcurrentHashMap<>();
+        
+        // Every role gets its buckets up front, so the maps themselves are never modified
+        this.activeByRole = new EnumMap<>(Role.class);
+        this.inactiveByRole = new EnumMap<>(Role.class);
+        for (Role role : Role.values()) {
+            activeByRole.put(role, new ConcurrentSkipListMap<>());
+            inactiveByRole.put(role, new ConcurrentSkipListMap<>());
+        }
+        
+        this.locks = new Object[LOCK_STRIPES];
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
     }
     
     // Method to register a new user
     public boolean registerUser(User user) throws AuthenticationException {
-        if (users.containsKey(user.getUserId())) {
+        if (users.putIfAbsent(user.getUserId(), user) != null) {
             throw new AuthenticationException("User ID already exists: " + user.getUserId());
         }
         
-        users.put(user.getUserId(), user);
-        saveUsers();
+        reindex(user);
+        userStore.put(user);
         return true;
     }
     
-    // Method to authenticate a user
-    public User login(String userId, String password) throws AuthenticationException {
+    // Method to authenticate a user, returns the new session
+    public UserSession login(String userId, String password) throws AuthenticationException {
         User user = users.get(userId);
         
         if (user == null) {
             throw new AuthenticationException("User not found: " + userId);
         }
         
-        if (user.login(password)) {
-            return user;
-        }
-        
-        return null; // Should not reach here as login throws exception on failure
+        return sessionManager.register(user.login(password));
     }
     
-    // Method to log out a user
+    // Method to get a live session by token, or null if it has ended or expired
+    public UserSession getSession(String token) {
+        return sessionManager.getSession(token);
+    }
+    
+    // Method to end one session
+    public boolean logoutSession(String token) {
+        return sessionManager.endSession(token);
+    }
+    
+    // Method to log out a user from every terminal
     public void logout(String userId) {
-        User user = users.get(userId);
-        if (user != null) {
-            user.logout();
-        }
+        sessionManager.endSessionsOf(userId);
     }
     
     // Method to get a user by ID
@@ -70,59 +108,92 @@ public class Authentication {
         return users.get(userId);
     }
     
+    // Method to get the role of a user, or null if the user does not exist
+    public Role getRole(String userId) {
+        User user = users.get(userId);
+        return (user != null) ? user.getRole() : null;
+    }
+    
+    // Method to get the active users with a role, in userId order
+    public List<User> getActiveUsers(Role role) {
+        return new ArrayList<>(activeByRole.get(role).values());
+    }
+    
+    // Method to get all users with a role, active or not, in userId order
+    public List<User> getUsersByRole(Role role) {
+        TreeMap<String, User> merged = new TreeMap<>(activeByRole.get(role));
+        merged.putAll(inactiveByRole.get(role));
+        return new ArrayList<>(merged.values());
+    }
+    
+    // Method to count the active users with a role
+    public int countActiveUsers(Role role) {
+        return activeByRole.get(role).size();
+    }
+    
     // Method to update a user
+    // Also brings the role and active-status indexes in line with the user's current state
     public boolean updateUser(User user) {
         if (!users.containsKey(user.getUserId())) {
             return false;
         }
         
         users.put(user.getUserId(), user);
-        saveUsers();
+        reindex(user);
+        userStore.put(user);
+        
+        // A deactivated user is logged out everywhere
+        if (!user.isActive()) {
+            sessionManager.endSessionsOf(user.getUserId());
+        }
         return true;
     }
     
     // Method to remove a user
     public boolean removeUser(String userId) {
-        if (!users.containsKey(userId)) {
+        if (users.remove(userId) == null) {
             return false;
         }
         
-        users.remove(userId);
-        saveUsers();
+        synchronized (lockFor(userId)) {
+            unindex(userId);
+        }
+        sessionManager.endSessionsOf(userId);
+        userStore.delete(userId);
         return true;
     }
     
-    // Method to load users from file
-    @SuppressWarnings("unchecked")
-    private void loadUsers() {
-        File file = new File(userDataFile);
-        if (!file.exists()) {
-            return;
-        }
-        
-        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(file))) {
-            Object obj = ois.readObject();
-            if (obj instanceof Map) {
-                users = (Map<String, User>) obj;
+    // Method to flush pending user changes and release the store
+    public void close() {
+        sessionManager.close();
+        userStore.close();
+    }
+    
+    // Getter for users map, read-only so that changes go through the indexed methods
+    public Map<String, User> getUsers() {
+        return Collections.unmodifiableMap(users);
+    }
+    
+    // Re-reads the user's role and status under the lock, so concurrent updates still leave one bucket
+    private void reindex(User user) {
+        String userId = user.getUserId();
+        synchronized (lockFor(userId)) {
+            unindex(userId);
+            if (users.get(userId) == user && user.getRole() != null) {
+                (user.isActive() ? activeByRole : inactiveByRole).get(user.getRole()).put(userId, user);
             }
-        } catch (IOException | ClassNotFoundException e) {
-            e.printStackTrace();
-            // In production, log the error properly
         }
     }
     
-    // Method to save users to file
-    private void saveUsers() {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(userDataFile))) {
-            oos.writeObject(users);
-        } catch (IOException e) {
-            e.printStackTrace();
-            // In production, log the error properly
+    // The user may have changed role or status in place, so it is removed from every bucket
+    private void unindex(String userId) {
+        for (Role role : Role.values()) {
+            activeByRole.get(role).remove(userId);
+            inactiveByRole.get(role).remove(userId);
         }
     }
     
-    // Getter for users map
-    public Map<String, User> getUsers() {
-        return users;
+    private Object lockFor(String userId) {
+        return locks[(userId.hashCode() & 0x7fffffff) % LOCK_STRIPES];
     }
 }
\ No newline at end of file
@@ -0,0 +1,136 @@
+package com.smartsupply.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import com.smartsupply.exception.InventoryException;
+import com.smartsupply.model.Inventory;
+import com.smartsupply.model.Order;
+import com.smartsupply.model.OrderStatus;
+import com.smartsupply.model.Product;
+
+/**
+ * Service releasing outgoing orders from a warehouse in waves
+ * Eligible orders are ranked (urgent first, then priority, then oldest) and
+ * allocated against local stock counters in a single pass, each order all
+ * or nothing. The stock of every allocated order is then removed from the
+ * inventory in one bulk step before the orders are marked as shipped
+ */
+public class FulfillmentEngine {
+    
+    // Release order: urgent orders first, then by priority (1 = highest), then oldest first
+    private static final Comparator<Order> RELEASE_ORDER =
+        Comparator.comparing((Order order) -> !order.isUrgent())
+                  .thenComparingInt(Order::getPriority)
+                  .thenComparing(Order::getOrderDate);
+    
+    /**
+     * Outcome of one wave release
+     */
+    public static class WaveResult {
+        private final List<Order> shippedOrders = new ArrayList<>();
+        private final List<Order> backorderedOrders = new ArrayList<>();
+        private final List<Order> skippedOrders = new ArrayList<>();
+        
+        // Orders whose stock was removed and that are now SHIPPED
+        public List<Order> getShippedOrders() {
+            return shippedOrders;
+        }
+        
+        // Orders left in PROCESSING because some item was short
+        public List<Order> getBackorderedOrders() {
+            return backorderedOrders;
+        }
+        
+        // Orders that were no longer PROCESSING when the wave reached them
+        public List<Order> getSkippedOrders() {
+            return skippedOrders;
+        }
+    }
+    
+    // Method to release a wave of orders from an inventory
+    public WaveResult releaseWave(Collection<Order> orders, Inventory inventory) {
+        WaveResult result = new WaveResult();
+        
+        List<Order> candidates = new ArrayList<>(orders.size());
+        for (Order order : orders) {
+            if (order.getStatus() == OrderStatus.PROCESSING) {
+                candidates.add(order);
+            } else {
+                result.skippedOrders.add(order);
+            }
+        }
+        candidates.sort(RELEASE_ORDER);
+        
+        // Allocate in one pass against local counters read once per product
+        Map<Product, int[]> available = new HashMap<>();
+        Map<Product, Integer> totals = new HashMap<>();
+        List<Order> allocated = new ArrayList<>();
+        
+        for (Order order : candidates) {
+            if (allocate(order, inventory, available)) {
+                allocated.add(order);
+                for (Map.Entry<Product, Integer> item : order.getOrderItems().entrySet()) {
+                    totals.merge(item.getKey(), item.getValue(), Integer::sum);
+                }
+            } else {
+                result.backorderedOrders.add(order);
+            }
+        }
+        
+        if (allocated.isEmpty()) {
+            return result;
+        }
+        
+        try {
+            inventory.removeStock(totals);
+            for (Order order : allocated) {
+                ship(order, inventory, result);
+            }
+        } catch (InventoryException e) {
+            // Stock moved since it was read; fall back to committing order by order
+            for (Order order : allocated) {
+                try {
+                    inventory.removeStock(order.getOrderItems());
+                    ship(order, inventory, result);
+                } catch (InventoryException shortage) {
+                    result.backorderedOrders.add(order);
+                }
+            }
+        }
+        
+        return result;
+    }
+    
+    // Reserves an order's items against the local counters if every item is available
+    private boolean allocate(Order order, Inventory inventory, Map<Product, int[]> available) {
+        for (Map.Entry<Product, Integer> item : order.getOrderItems().entrySet()) {
+            int[] counter = available.computeIfAbsent(item.getKey(), p -> new int[] { inventory.getStockCount(p) });
+            if (counter[0] < item.getValue()) {
+                return false;
+            }
+        }
+        
+        for (Map.Entry<Product, Integer> item : order.getOrderItems().entrySet()) {
+            available.get(item.getKey())[0] -= item.getValue();
+        }
+        return true;
+    }
+    
+    // Marks an order whose stock has been removed as shipped
+    // If another terminal cancelled it in the meantime, its stock is put back
+    private void ship(Order order, Inventory inventory, WaveResult result) {
+        if (order.tryTransition(OrderStatus.PROCESSING, OrderStatus.SHIPPED)) {
+            result.shippedOrders.add(order);
+            return;
+        }
+        
+        for (Map.Entry<Product, Integer> item : order.getOrderItems().entrySet()) {
+            inventory.addStock(item.getKey(), item.getValue());
+        }
+        result.skippedOrders.add(order);
+    }
+}
\ No newline at end of file
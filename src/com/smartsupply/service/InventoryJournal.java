@@ -0,0 +1,586 @@
+package com.smartsupply.service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+import com.smartsupply.model.Inventory;
+import com.smartsupply.model.Product;
+import com.smartsupply.model.ProductChangeListener;
+import com.smartsupply.model.StockJournal;
+
+/**
+ * Service that makes inventory stock durable with a write-ahead journal
+ * Every stock change is appended to the journal as a small checksummed
+ * record while the inventory holds the product's lock, before the change is
+ * applied, and the change waits for the record once the lock is released
+ * (see StockJournal). A background writer takes everything appended since its last
+ * write and syncs it with a single fsync (group commit), so concurrent
+ * terminals share the cost of each sync
+ * On startup the journal is replayed on top of the last checkpoint, a new
+ * checkpoint is written and the journal starts empty again
+ * If a write or sync fails the journal stops: waiting mutations and later
+ * ones get an UncheckedIOException until a new journal is recovered; a
+ * later mutation is refused before it is applied
+ */
+public class InventoryJournal implements StockJournal, ProductChangeListener {
+    private static final String JOURNAL_FILE = "inventory.journal";
+    private static final String CHECKPOINT_FILE = "inventory.checkpoint";
+    private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_RECORD = 1 << 20; // A record holds at most eight UTF strings of 64 KiB
+    
+    // Record types
+    private static final byte LOCATION = 1;        // Starts (or resets) a location
+    private static final byte PRODUCT = 2;         // Defines or redefines a product
+    private static final byte STOCK_DELTA = 3;
+    private static final byte THRESHOLD = 4;
+    private static final byte PRODUCT_REMOVED = 5;
+    
+    private final File journalFile;
+    private final File checkpointFile;
+    private final boolean waitForDurability;
+    private final Set<String> journaledProducts;
+    
+    // Group commit state, guarded by this
+    private RecordBuffer pending;
+    private RecordBuffer spare;
+    private long appendedSequence;
+    private long durableSequence;
+    private boolean closed;
+    private IOException failure; // Sticky, set when a write or sync has failed
+    
+    private FileChannel channel;
+    private Thread writer;
+    
+    // Nested class for a reusable, growable byte buffer of framed records
+    private static class RecordBuffer {
+        private byte[] data = new byte[INITIAL_BUFFER_SIZE];
+        private int size;
+        
+        void append(byte[] record) {
+            int needed = size + record.length;
+            if (needed > data.length) {
+                byte[] grown = new byte[Math.max(needed, data.length * 2)];
+                System.arraycopy(data, 0, grown, 0, size);
+                data = grown;
+            }
+            System.arraycopy(record, 0, data, size, record.length);
+            size = needed;
+        }
+    }
+    
+    // Nested class accumulating state while the checkpoint and journal are replayed
+    private static class RecoveryState {
+        private final Map<String, Product> products = new HashMap<>();
+        private final Map<String, String> locationTypes = new LinkedHashMap<>();
+        private final Map<String, Map<String, int[]>> levels = new LinkedHashMap<>(); // {stock, threshold}
+        
+        int[] levelsFor(String locationId, String productId) {
+            return levels.computeIfAbsent(locationId, k -> new LinkedHashMap<>())
+                         .computeIfAbsent(productId, k -> new int[2]);
+        }
+    }
+    
+    // Constructor with data directory, mutations wait until their record is on disk
+    public InventoryJournal(String dataDirectory) {
+        this(dataDirectory, true);
+    }
+    
+    // Constructor choosing whether mutations wait for their record to be synced
+    public InventoryJournal(String dataDirectory, boolean waitForDurability) {
+        this.journalFile = new File(dataDirectory, JOURNAL_FILE);
+        this.checkpointFile = new File(dataDirectory, CHECKPOINT_FILE);
+        this.waitForDurability = waitForDurability;
+        this.journaledProducts = ConcurrentHashMap.newKeySet();
+        this.pending = new RecordBuffer();
+        this.spare = new RecordBuffer();
+    }
+    
+    // Method to rebuild inventories from disk and start journaling them
+    // Must be called once, before any other inventory is attached
+    public Map<String, Inventory> recover() {
+        RecoveryState state = new RecoveryState();
+        replay(checkpointFile, state);
+        replay(journalFile, state);
+        
+        Map<String, Inventory> inventories = new LinkedHashMap<>();
+        for (Map.Entry<String, String> location : state.locationTypes.entrySet()) {
+            Inventory inventory = new Inventory(location.getKey(), location.getValue());
+            Map<String, int[]> productLevels = state.levels.getOrDefault(location.getKey(), new HashMap<>());
+            
+            for (Map.Entry<String, int[]> entry : productLevels.entrySet()) {
+                Product product = state.products.get(entry.getKey());
+                if (product != null) {
+                    inventory.restoreProduct(product, entry.getValue()[0], entry.getValue()[1]);
+                }
+            }
+            
+            inventories.put(inventory.getLocationId(), inventory);
+        }
+        
+        try {
+            writeCheckpoint(inventories.values());
+            channel = FileChannel.open(journalFile.toPath(), StandardOpenOption.CREATE,
+                                       StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        } catch (IOException e) {
+            System.err.println("Inventory journal unavailable, stock will not be persisted: " + e.getMessage());
+            return inventories;
+        }
+        
+        for (Inventory inventory : inventories.values()) {
+            for (Product product : inventory.getStockLevels().keySet()) {
+                if (journaledProducts.add(product.getProductId())) {
+                    product.addChangeListener(this);
+                }
+            }
+            inventory.setJournal(this);
+        }
+        
+        writer = new Thread(this::writeLoop, "inventory-journal");
+        writer.setDaemon(true);
+        writer.start();
+        
+        if (state.locationTypes.size() > 0) {
+            System.out.println("Recovered " + inventories.size() + " inventory locations from journal.");
+        }
+        return inventories;
+    }
+    
+    // Method to start journaling an inventory that was created after recovery
+    // Its current contents are journaled first, so attach before sharing it between threads
+    public void attach(Inventory inventory) {
+        append(encodeLocation(inventory.getLocationId(), inventory.getLocationType()));
+        
+        for (Map.Entry<Product, Integer> entry : inventory.getStockLevels().entrySet()) {
+            Product product = entry.getKey();
+            journalProduct(product);
+            append(encodeLevel(STOCK_DELTA, inventory.getLocationId(), product.getProductId(), entry.getValue()));
+            append(encodeLevel(THRESHOLD, inventory.getLocationId(), product.getProductId(),
+                               inventory.getReorderThreshold(product)));
+        }
+        
+        inventory.setJournal(this);
+    }
+    
+    // The log methods only queue records; the inventory calls them under the product's lock and
+    // waits through awaitDurable once the lock is released, so the sync is not done under the lock
+    @Override
+    public long logStockChange(Inventory inventory, Product product, int delta) {
+        long sequence = enqueueProduct(product);
+        return Math.max(sequence, enqueue(encodeLevel(STOCK_DELTA, inventory.getLocationId(),
+                                                      product.getProductId(), delta)));
+    }
+    
+    // The lines of one step are queued together and wait for a single sync, that of the last record
+    @Override
+    public long logStockChanges(Inventory inventory, Product[] products, int[] deltas) {
+        long last = 0;
+        for (int i = 0; i < products.length; i++) {
+            if (deltas[i] == 0) {
+                continue;
+            }
+            last = Math.max(last, enqueueProduct(products[i]));
+            last = Math.max(last, enqueue(encodeLevel(STOCK_DELTA, inventory.getLocationId(),
+                                                      products[i].getProductId(), deltas[i])));
+        }
+        return last;
+    }
+    
+    @Override
+    public long logThreshold(Inventory inventory, Product product, int threshold) {
+        long sequence = enqueueProduct(product);
+        return Math.max(sequence, enqueue(encodeLevel(THRESHOLD, inventory.getLocationId(),
+                                                      product.getProductId(), threshold)));
+    }
+    
+    @Override
+    public long logProductRemoved(Inventory inventory, Product product) {
+        return enqueue(encodeLevel(PRODUCT_REMOVED, inventory.getLocationId(), product.getProductId(), 0));
+    }
+    
+    // Waits until the record with the given sequence has been synced, unless mutations do not wait
+    @Override
+    public void awaitDurable(long sequence) {
+        if (waitForDurability) {
+            awaitSynced(sequence);
+        }
+    }
+    
+    // Price, category and supplier changes rewrite the product definition so replay sees the latest values
+    @Override
+    public void onPriceChanged(Product product, double oldPrice, double newPrice) {
+        append(encodeProduct(product));
+    }
+    
+    @Override
+    public void onCategoryChanged(Product product, String oldCategory, String newCategory) {
+        append(encodeProduct(product));
+    }
+    
+    @Override
+    public void onSupplierChanged(Product product, String oldSupplierUserId, String newSupplierUserId) {
+        append(encodeProduct(product));
+    }
+    
+    // Method to write out pending records and stop the writer
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            notifyAll();
+        }
+        
+        try {
+            if (writer != null) {
+                writer.join();
+            }
+            if (channel != null) {
+                channel.close();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+    
+    // Writes the definition of a product the first time the journal sees it
+    private void journalProduct(Product product) {
+        long sequence = enqueueProduct(product);
+        if (sequence > 0) {
+            awaitDurable(sequence);
+        }
+    }
+    
+    // Queues the definition of a product the first time the journal sees it, returns its sequence or 0
+    private long enqueueProduct(Product product) {
+        if (!journaledProducts.add(product.getProductId())) {
+            return 0;
+        }
+        
+        long sequence = enqueue(encodeProduct(product));
+        product.addChangeListener(this);
+        return sequence;
+    }
+    
+    // Appends a framed record to the pending batch and optionally waits for it to be synced
+    private void append(byte[] record) {
+        long sequence = enqueue(record);
+        if (sequence > 0) {
+            awaitDurable(sequence);
+        }
+    }
+    
+    // Queues a framed record for the writer without waiting, returns its sequence or 0 if nothing is journaled
+    private long enqueue(byte[] record) {
+        long sequence;
+        
+        synchronized (this) {
+            if (channel == null || closed) {
+                return 0;
+            }
+            if (failure != null) {
+                throw new UncheckedIOException("Inventory journal has failed, stock changes are not persisted", failure);
+            }
+            pending.append(record);
+            sequence = ++appendedSequence;
+            notifyAll();
+        }
+        return sequence;
+    }
+    
+    private synchronized void awaitSynced(long sequence) {
+        while (durableSequence < sequence) {
+            if (failure != null) {
+                throw new UncheckedIOException("Inventory journal write failed, change may not be persisted", failure);
+            }
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+    
+    // Background loop: swap buffers, write the whole batch, one fsync, wake every waiter in it
+    private void writeLoop() {
+        while (true) {
+            RecordBuffer batch;
+            long batchEnd;
+            
+            synchronized (this) {
+                while (pending.size == 0 && !closed) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        closed = true;
+                    }
+                }
+                if (pending.size == 0) {
+                    return;
+                }
+                
+                batch = pending;
+                pending = spare;
+                batchEnd = appendedSequence;
+            }
+            
+            try {
+                ByteBuffer bytes = ByteBuffer.wrap(batch.data, 0, batch.size);
+                while (bytes.hasRemaining()) {
+                    channel.write(bytes);
+                }
+                channel.force(false);
+            } catch (IOException e) {
+                e.printStackTrace();
+                
+                // Nothing after this batch can be trusted to reach the disk, so stop and fail the waiters
+                synchronized (this) {
+                    failure = e;
+                    notifyAll();
+                }
+                return;
+            }
+            
+            synchronized (this) {
+                batch.size = 0;
+                spare = batch;
+                durableSequence = batchEnd;
+                notifyAll();
+            }
+        }
+    }
+    
+    // Writes every location to a temporary file and atomically replaces the checkpoint
+    private void writeCheckpoint(Collection<Inventory> inventories) throws IOException {
+        File temp = new File(checkpointFile.getPath() + ".tmp");
+        journaledProducts.clear();
+        
+        try (FileOutputStream file = new FileOutputStream(temp);
+             BufferedOutputStream out = new BufferedOutputStream(file)) {
+            for (Inventory inventory : inventories) {
+                String locationId = inventory.getLocationId();
+                out.write(encodeLocation(locationId, inventory.getLocationType()));
+                
+                for (Map.Entry<Product, Integer> entry : inventory.getStockLevels().entrySet()) {
+                    Product product = entry.getKey();
+                    if (journaledProducts.add(product.getProductId())) {
+                        out.write(encodeProduct(product));
+                    }
+                    out.write(encodeLevel(STOCK_DELTA, locationId, product.getProductId(), entry.getValue()));
+                    out.write(encodeLevel(THRESHOLD, locationId, product.getProductId(),
+                                          inventory.getReorderThreshold(product)));
+                }
+            }
+            out.flush();
+            file.getFD().sync();
+        }
+        
+        Files.move(temp.toPath(), checkpointFile.toPath(),
+                   StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+    
+    // Applies every intact record of a file; stops at the first torn or corrupt record
+    private void replay(File file, RecoveryState state) {
+        if (!file.exists()) {
+            return;
+        }
+        
+        long remaining = file.length();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    return;
+                }
+                remaining -= 4;
+                
+                // A torn or garbage length is a corrupt record, check it before allocating
+                if (length < 0 || length > MAX_RECORD || length + 4L > remaining) {
+                    System.err.println("Ignoring corrupt record at the end of " + file.getName());
+                    return;
+                }
+                remaining -= length + 4L;
+                
+                byte[] payload = new byte[length];
+                in.readFully(payload);
+                int checksum = in.readInt();
+                
+                if (checksum != checksum(payload)) {
+                    System.err.println("Ignoring corrupt record at the end of " + file.getName());
+                    return;
+                }
+                
+                applyRecord(payload, state);
+            }
+        } catch (EOFException e) {
+            System.err.println("Ignoring incomplete record at the end of " + file.getName());
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+    
+    private static void applyRecord(byte[] payload, RecoveryState state) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        byte type = in.readByte();
+        in.readLong(); // Timestamp, kept for auditing
+        
+        switch (type) {
+            case LOCATION: {
+                String locationId = in.readUTF();
+                state.locationTypes.put(locationId, readString(in));
+                state.levels.put(locationId, new LinkedHashMap<>());
+                break;
+            }
+            case PRODUCT: {
+                String productId = in.readUTF();
+                String name = readString(in);
+                double price = in.readDouble();
+                String description = readString(in);
+                String category = readString(in);
+                String supplierUserId = readString(in);
+                // Codes were added to the record later, older records end before them
+                String barcode = (in.available() > 0) ? readString(in) : null;
+                String qrCode = (in.available() > 0) ? readString(in) : null;
+                
+                Product product = state.products.get(productId);
+                if (product == null) {
+                    product = new Product(productId, name, price, description, category, supplierUserId).intern();
+                    state.products.put(productId, product);
+                }
+                
+                // The record wins over a copy loaded earlier, such as the product catalog's
+                product.setName(name);
+                product.setPrice(price);
+                product.setDescription(description);
+                product.setCategory(category);
+                product.setSupplierUserId(supplierUserId);
+                
+                // Restored codes are reserved, so they are never issued to another product
+                if (barcode != null) {
+                    product.setBarcode(barcode);
+                }
+                if (qrCode != null) {
+                    product.setQrCode(qrCode);
+                }
+                break;
+            }
+            case STOCK_DELTA:
+                state.levelsFor(in.readUTF(), in.readUTF())[0] += in.readInt();
+                break;
+            case THRESHOLD:
+                state.levelsFor(in.readUTF(), in.readUTF())[1] = in.readInt();
+                break;
+            case PRODUCT_REMOVED: {
+                Map<String, int[]> productLevels = state.levels.get(in.readUTF());
+                if (productLevels != null) {
+                    productLevels.remove(in.readUTF());
+                }
+                break;
+            }
+            default:
+                throw new IOException("Unknown journal record type: " + type);
+        }
+    }
+    
+    // Record encoders, each returns a complete frame: length, payload, CRC32 of payload
+    private static byte[] encodeLocation(String locationId, String locationType) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+            DataOutputStream out = startRecord(bytes, LOCATION);
+            out.writeUTF(locationId);
+            writeString(out, locationType);
+            return frame(bytes);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    private static byte[] encodeProduct(Product product) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+            DataOutputStream out = startRecord(bytes, PRODUCT);
+            out.writeUTF(product.getProductId());
+            writeString(out, product.getName());
+            out.writeDouble(product.getPrice());
+            writeString(out, product.getDescription());
+            writeString(out, product.getCategory());
+            writeString(out, product.getSupplierUserId());
+            // The codes are issued here if the product has none yet, so its labels stay valid after a restart
+            writeString(out, product.getBarcode());
+            writeString(out, product.getQrCode());
+            return frame(bytes);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    private static byte[] encodeLevel(byte type, String locationId, String productId, int value) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(48);
+            DataOutputStream out = startRecord(bytes, type);
+            out.writeUTF(locationId);
+            out.writeUTF(productId);
+            out.writeInt(value);
+            return frame(bytes);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    private static DataOutputStream startRecord(ByteArrayOutputStream bytes, byte type) throws IOException {
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(type);
+        out.writeLong(System.currentTimeMillis());
+        return out;
+    }
+    
+    private static byte[] frame(ByteArrayOutputStream bytes) {
+        byte[] payload = bytes.toByteArray();
+        ByteBuffer framed = ByteBuffer.allocate(payload.length + 8);
+        framed.putInt(payload.length).put(payload).putInt(checksum(payload));
+        return framed.array();
+    }
+    
+    private static int checksum(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+    
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+    
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
\ No newline at end of file
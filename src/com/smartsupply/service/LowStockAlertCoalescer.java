@@ -0,0 +1,221 @@
+package com.smartsupply.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import com.smartsupply.model.Inventory;
+import com.smartsupply.model.Product;
+import com.smartsupply.model.StockChangeListener;
+
+/**
+ * Service turning low-stock conditions into one digest per coalescing window
+ * A product is alerted once per location when it drops to its reorder
+ * threshold. It is only alerted again after it has recovered above the
+ * threshold by the recovery margin and dropped again (hysteresis), so stock
+ * moving around the threshold does not repeat the alert
+ * Alerts raised during a window are sent together when the window closes
+ */
+public class LowStockAlertCoalescer implements StockChangeListener {
+    private static final long DEFAULT_WINDOW_MILLIS = 30 * 1000L;
+    private static final double DEFAULT_RECOVERY_FACTOR = 0.2;
+    
+    private final NotificationService notificationService;
+    private final long windowMillis;
+    private final double recoveryFactor;
+    private final ConcurrentMap<String, LocationAlerts> locations; // locationId -> alert state of that location
+    private final Thread flusher;
+    private volatile boolean closed;
+    
+    /**
+     * One product at one location that has dropped to its reorder threshold
+     */
+    public static class LowStockAlert {
+        private final String locationId;
+        private final Product product;
+        private final int stock;
+        private final int threshold;
+        
+        public LowStockAlert(String locationId, Product product, int stock, int threshold) {
+            this.locationId = locationId;
+            this.product = product;
+            this.stock = stock;
+            this.threshold = threshold;
+        }
+        
+        public String getLocationId() {
+            return locationId;
+        }
+        
+        public Product getProduct() {
+            return product;
+        }
+        
+        public int getStock() {
+            return stock;
+        }
+        
+        public int getThreshold() {
+            return threshold;
+        }
+    }
+    
+    // Nested class for the alert state of one location, keyed by product handle (see Product.getHandle)
+    private static final class LocationAlerts {
+        private final ConcurrentMap<Integer, Boolean> alerted = new ConcurrentHashMap<>(); // alerted and not yet recovered
+        private final ConcurrentMap<Integer, LowStockAlert> pending = new ConcurrentHashMap<>(); // waiting for the end of the window
+    }
+    
+    // Constructor with the default window and recovery margin
+    public LowStockAlertCoalescer(NotificationService notificationService) {
+        this(notificationService, DEFAULT_WINDOW_MILLIS, DEFAULT_RECOVERY_FACTOR);
+    }
+    
+    // Constructor with window length and recovery margin as a fraction of the threshold
+    public LowStockAlertCoalescer(NotificationService notificationService, long windowMillis, double recoveryFactor) {
+        if (windowMillis <= 0 || recoveryFactor < 0) {
+            throw new IllegalArgumentException("Window must be positive and recovery factor not negative");
+        }
+        
+        this.notificationService = notificationService;
+        this.windowMillis = windowMillis;
+        this.recoveryFactor = recoveryFactor;
+        this.locations = new ConcurrentHashMap<>();
+        
+        this.flusher = new Thread(this::flushLoop, "low-stock-alerts");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+    
+    // Method to follow the stock changes of an inventory
+    public void attach(Inventory inventory) {
+        inventory.addStockChangeListener(this);
+        review(inventory);
+    }
+    
+    // Method to evaluate every product an inventory currently reports as low
+    public void review(Inventory inventory) {
+        for (Product product : inventory.checkLowStock()) {
+            evaluate(inventory, product);
+        }
+    }
+    
+    // Method to evaluate one product at one location
+    public void evaluate(Inventory inventory, Product product) {
+        int stock = inventory.getStockCount(product);
+        int threshold = inventory.getReorderThreshold(product);
+        String locationId = inventory.getLocationId();
+        LocationAlerts state = locations.get(locationId);
+        if (stock > threshold && (state == null || state.alerted.isEmpty())) {
+            return; // Common case: stock is fine and nothing is outstanding at this location
+        }
+        
+        Integer handle = product.getHandle();
+        if (stock > threshold && !state.alerted.containsKey(handle)) {
+            return;
+        }
+        
+        // A product the location does not stock reads as 0 units but is not low, so it is never alerted
+        boolean low = stock <= threshold && inventory.isLowStock(product);
+        if (state == null) {
+            if (!low) {
+                return;
+            }
+            state = locations.computeIfAbsent(locationId, id -> new LocationAlerts());
+        }
+        
+        ConcurrentMap<Integer, LowStockAlert> pending = state.pending;
+        state.alerted.compute(handle, (h, wasAlerted) -> {
+            if (low) {
+                if (wasAlerted == null) {
+                    pending.put(h, new LowStockAlert(locationId, product, stock, threshold));
+                } else {
+                    // Already alerted: keep the figures of an unsent alert current, send nothing new
+                    pending.computeIfPresent(h, (p, alert) -> new LowStockAlert(locationId, product, stock, threshold));
+                }
+                return Boolean.TRUE;
+            }
+            
+            if (wasAlerted != null && stock > threshold + recoveryMargin(threshold)) {
+                pending.remove(h);
+                return null; // Recovered: the next drop is alerted again
+            }
+            return wasAlerted;
+        });
+    }
+    
+    // Method to send the alerts collected so far as one digest
+    public void flush() {
+        List<LowStockAlert> alerts = new ArrayList<>();
+        for (LocationAlerts state : locations.values()) {
+            for (Integer handle : state.pending.keySet()) {
+                LowStockAlert alert = state.pending.remove(handle);
+                if (alert != null) {
+                    alerts.add(alert);
+                }
+            }
+        }
+        
+        if (!alerts.isEmpty()) {
+            alerts.sort(Comparator.comparing(LowStockAlert::getLocationId)
+                                  .thenComparing(alert -> alert.getProduct().getProductId()));
+            notificationService.sendLowStockDigest(alerts);
+        }
+    }
+    
+    // Method to stop the window timer and send what is pending
+    public void close() {
+        closed = true;
+        flusher.interrupt();
+        try {
+            flusher.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+    
+    @Override
+    public void onStockChanged(Inventory inventory, Product product, int delta) {
+        evaluate(inventory, product);
+    }
+    
+    @Override
+    public void onThresholdChanged(Inventory inventory, Product product, int threshold) {
+        evaluate(inventory, product);
+    }
+    
+    @Override
+    public void onProductRemoved(Inventory inventory, Product product) {
+        LocationAlerts state = locations.get(inventory.getLocationId());
+        if (state != null) {
+            Integer handle = product.getHandle();
+            state.alerted.remove(handle);
+            state.pending.remove(handle);
+        }
+    }
+    
+    private void flushLoop() {
+        while (!closed) {
+            try {
+                Thread.sleep(windowMillis);
+            } catch (InterruptedException e) {
+                if (closed) {
+                    return;
+                }
+            }
+            
+            try {
+                flush();
+            } catch (RuntimeException e) {
+                System.err.println("Error sending low stock digest: " + e.getMessage());
+            }
+        }
+    }
+    
+    // Units above the threshold a product must reach before it can be alerted again
+    private int recoveryMargin(int threshold) {
+        return Math.max(1, (int) Math.ceil(threshold * recoveryFactor));
+    }
+}
\ No newline at end of file
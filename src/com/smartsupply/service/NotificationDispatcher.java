@@ -0,0 +1,259 @@
+package com.smartsupply.service;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+import com.smartsupply.event.RingBuffer;
+import com.smartsupply.model.User;
+
+/**
+ * Service delivering notifications to their recipients in the background
+ * Callers only put a notification into a bounded lock-free queue; worker
+ * threads take it out in batches, format each message once and write the
+ * whole batch with a single call. What happens when the queue is full is
+ * chosen with an OverflowPolicy
+ */
+public class NotificationDispatcher {
+    private static final int DEFAULT_CAPACITY = 4096;
+    private static final int DEFAULT_WORKERS = 2;
+    private static final int DEFAULT_BATCH_SIZE = 128;
+    private static final long POLL_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(250);
+    private static final long DEFAULT_BLOCK_TIMEOUT_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    
+    /**
+     * What to do with a notification that does not fit into the queue
+     */
+    public enum OverflowPolicy {
+        DROP_NEWEST, // Discard the new notification
+        DROP_OLDEST, // Discard the oldest queued notification to make room
+        BLOCK,       // Wait for room up to the block timeout, then discard the new notification
+        CALLER_RUNS  // Deliver the new notification on the caller's thread
+    }
+    
+    /**
+     * A message waiting for delivery and who receives it
+     * The message is built by the worker that delivers it, not by the caller
+     */
+    public static class Notification {
+        private final Collection<User> recipients;
+        private final String recipientLabel;
+        private final Supplier<String> message;
+        
+        // Constructor for a message to a set of users
+        public Notification(Collection<User> recipients, Supplier<String> message) {
+            this.recipients = recipients;
+            this.recipientLabel = null;
+            this.message = message;
+        }
+        
+        // Constructor for a message to a recipient that is only known by a label
+        public Notification(String recipientLabel, Supplier<String> message) {
+            this.recipients = null;
+            this.recipientLabel = recipientLabel;
+            this.message = message;
+        }
+        
+        // Method to append the delivery lines of this notification
+        void deliverTo(StringBuilder text) {
+            String body = message.get();
+            if (recipients == null) {
+                appendLine(text, recipientLabel, body);
+                return;
+            }
+            for (User user : recipients) {
+                // In a real implementation, this would send an actual notification
+                appendLine(text, user.getName(), body);
+            }
+        }
+        
+        private static void appendLine(StringBuilder text, String recipient, String body) {
+            text.append("Sending to ").append(recipient).append(": ").append(body).append(System.lineSeparator());
+        }
+    }
+    
+    private final RingBuffer<Notification> queue;
+    private final PrintStream out;
+    private final int batchSize;
+    private final OverflowPolicy policy;
+    private final long blockTimeoutNanos;
+    private final AtomicLong accepted;
+    private final AtomicLong delivered;
+    private final AtomicLong dropped;
+    private final Thread[] workers;
+    private final Queue<Thread> idleWorkers; // Workers parked on an empty queue, woken by dispatch
+    private volatile boolean running;
+    
+    // Constructor with default sizes, dropping new notifications when the queue is full
+    public NotificationDispatcher(PrintStream out) {
+        this(out, DEFAULT_CAPACITY, DEFAULT_WORKERS, DEFAULT_BATCH_SIZE, OverflowPolicy.DROP_NEWEST);
+    }
+    
+    // Constructor with queue capacity, worker count, batch size and overflow policy
+    public NotificationDispatcher(PrintStream out, int capacity, int workerCount, int batchSize,
+                                  OverflowPolicy policy) {
+        this.queue = new RingBuffer<>(capacity);
+        this.out = out;
+        this.batchSize = batchSize;
+        this.policy = policy;
+        this.blockTimeoutNanos = DEFAULT_BLOCK_TIMEOUT_NANOS;
+        this.accepted = new AtomicLong();
+        this.delivered = new AtomicLong();
+        this.dropped = new AtomicLong();
+        this.idleWorkers = new ConcurrentLinkedQueue<>();
+        this.running = true;
+        
+        this.workers = new Thread[workerCount];
+        for (int i = 0; i < workerCount; i++) {
+            workers[i] = new Thread(this::deliverLoop, "notification-worker-" + i);
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+    }
+    
+    // Method to hand a notification over for delivery, returns false if it was dropped
+    public boolean dispatch(Notification notification) {
+        accepted.incrementAndGet();
+        if (queue.offer(notification)) {
+            wakeWorker();
+            return true;
+        }
+        
+        switch (policy) {
+            case DROP_OLDEST:
+                while (!queue.offer(notification)) {
+                    if (queue.poll() != null) {
+                        dropped.incrementAndGet();
+                    }
+                }
+                wakeWorker();
+                return true;
+            
+            case BLOCK:
+                long deadline = System.nanoTime() + blockTimeoutNanos;
+                while (System.nanoTime() < deadline) {
+                    LockSupport.parkNanos(POLL_NANOS);
+                    if (queue.offer(notification)) {
+                        wakeWorker();
+                        return true;
+                    }
+                }
+                dropped.incrementAndGet();
+                return false;
+            
+            case CALLER_RUNS:
+                deliver(List.of(notification));
+                return true;
+            
+            default:
+                dropped.incrementAndGet();
+                return false;
+        }
+    }
+    
+    // Method to wait briefly until everything dispatched so far has been delivered or dropped
+    public void flush() {
+        long target = accepted.get();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        
+        while (delivered.get() + dropped.get() < target && System.nanoTime() < deadline) {
+            LockSupport.parkNanos(POLL_NANOS);
+        }
+    }
+    
+    // Method to deliver what is queued and stop the workers
+    public void close() {
+        running = false;
+        for (Thread worker : workers) {
+            LockSupport.unpark(worker);
+        }
+        
+        try {
+            for (Thread worker : workers) {
+                worker.join(TimeUnit.SECONDS.toMillis(1));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    // Background loop: drain a batch, build its text in one buffer, write once
+    private void deliverLoop() {
+        List<Notification> batch = new ArrayList<>(batchSize);
+        
+        while (running || !queue.isEmpty()) {
+            if (queue.drainTo(batch, batchSize) == 0) {
+                awaitWork();
+                continue;
+            }
+            
+            deliver(batch);
+            batch.clear();
+        }
+    }
+    
+    // Parks the calling worker until dispatch wakes it, close stops it or the idle timeout passes
+    // The worker registers before checking the queue again, so a notification offered in between
+    // is never missed: either the check sees it or the dispatching thread sees the worker
+    private void awaitWork() {
+        Thread self = Thread.currentThread();
+        idleWorkers.add(self);
+        if (running && queue.isEmpty()) {
+            LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+        }
+        idleWorkers.remove(self);
+    }
+    
+    // Wakes one parked worker, if any, after a notification was queued
+    private void wakeWorker() {
+        if (!idleWorkers.isEmpty()) {
+            Thread worker = idleWorkers.poll();
+            if (worker != null) {
+                LockSupport.unpark(worker);
+            }
+        }
+    }
+    
+    private void deliver(List<Notification> batch) {
+        StringBuilder text = new StringBuilder();
+        for (Notification notification : batch) {
+            try {
+                notification.deliverTo(text);
+            } catch (RuntimeException e) {
+                System.err.println("Error delivering notification: " + e.getMessage());
+            }
+        }
+        
+        out.print(text);
+        out.flush();
+        delivered.addAndGet(batch.size());
+    }
+    
+    // Getters for monitoring
+    public long getAcceptedCount() {
+        return accepted.get();
+    }
+    
+    public long getDeliveredCount() {
+        return delivered.get();
+    }
+    
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+    
+    public int getPendingCount() {
+        return queue.size();
+    }
+    
+    public OverflowPolicy getPolicy() {
+        return policy;
+    }
+}
\ No newline at end of file
@@ -1,63 +1,187 @@
 package com.smartsupply.service;
 
+import java.util.AbstractCollection;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import com.smartsupply.model.Order;
+import com.smartsupply.model.OrderStatus;
 import com.smartsupply.model.Product;
+import com.smartsupply.model.Role;
 import com.smartsupply.model.User;
+import com.smartsupply.service.NotificationDispatcher.Notification;
 
 /**
  * Service for sending notifications to users
+ * Users subscribe to topics: everything, a location, a product category,
+ * a user's own orders or a role. Each notification goes only to the
+ * subscribers of its topics, and subscribing or unsubscribing touches
+ * only the sets of the topics involved
+ * Messages are handed to a NotificationDispatcher and delivered to the
+ * subscribers in the background, so senders never wait for delivery
  */
 public class NotificationService {
-    private List<User> subscribers;
+    private final ConcurrentMap<Topic, Set<User>> subscriptions; // Read by the dispatcher when a notification is delivered
+    private final ConcurrentMap<User, Set<Topic>> topicsByUser;
+    private final NotificationDispatcher dispatcher;
+    
+    /**
+     * Something a user can subscribe to
+     */
+    public static final class Topic {
+        public static final Topic ALL = new Topic("all", "");
+        
+        private final String kind;
+        private final String value;
+        
+        private Topic(String kind, String value) {
+            this.kind = kind;
+            this.value = (value != null) ? value : "";
+        }
+        
+        // Topic for low stock at one location
+        public static Topic location(String locationId) {
+            return new Topic("location", locationId);
+        }
+        
+        // Topic for low stock of products in one category
+        public static Topic category(String category) {
+            return new Topic("category", category);
+        }
+        
+        // Topic for updates on orders a user placed or supplies
+        public static Topic user(String userId) {
+            return new Topic("user", userId);
+        }
+        
+        // Topic for notifications addressed to everyone with a role
+        public static Topic role(Role role) {
+            return new Topic("role", role.name());
+        }
+        
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return true;
+            if (!(obj instanceof Topic)) return false;
+            Topic topic = (Topic) obj;
+            return kind.equals(topic.kind) && value.equals(topic.value);
+        }
+        
+        @Override
+        public int hashCode() {
+            return 31 * kind.hashCode() + value.hashCode();
+        }
+        
+        @Override
+        public String toString() {
+            return value.isEmpty() ? kind : kind + ":" + value;
+        }
+    }
+    
+    // Nested class presenting the subscribers of several topics as one collection
+    // It is iterated by the dispatcher, so resolving overlaps is left to the delivery thread
+    private static class Audience extends AbstractCollection<User> {
+        private final List<Set<User>> groups;
+        
+        Audience(List<Set<User>> groups) {
+            this.groups = groups;
+        }
+        
+        @Override
+        public Iterator<User> iterator() {
+            if (groups.size() == 1) {
+                return groups.get(0).iterator();
+            }
+            
+            Set<User> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (Set<User> group : groups) {
+                seen.addAll(group);
+            }
+            return seen.iterator();
+        }
+        
+        @Override
+        public int size() {
+            int size = 0;
+            for (Iterator<User> it = iterator(); it.hasNext(); it.next()) {
+                size++;
+            }
+            return size;
+        }
+        
+        @Override
+        public boolean isEmpty() {
+            for (Set<User> group : groups) {
+                if (!group.isEmpty()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
     
     // Default constructor
     public NotificationService() {
-        this.subscribers = new ArrayList<>();
+        this(new ArrayList<>(), new NotificationDispatcher(System.out));
     }
     
-    // Constructor with initial subscribers
+    // Constructor with initial subscribers to all notifications
     public NotificationService(List<User> subscribers) {
-        this.subscribers = subscribers;
+        this(subscribers, new NotificationDispatcher(System.out));
     }
     
-    // Method to send low stock alert
-    public void sendLowStockAlert(Product product, int currentStock, int threshold) {
-        String message = String.format(
-            "LOW STOCK ALERT: %s (ID: %s) is below threshold. Current: %d, Threshold: %d",
-            product.getName(), product.getProductId(), currentStock, threshold);
+    // Constructor with initial subscribers to all notifications and a configured dispatcher
+    public NotificationService(List<User> subscribers, NotificationDispatcher dispatcher) {
+        this.subscriptions = new ConcurrentHashMap<>();
+        this.topicsByUser = new ConcurrentHashMap<>();
+        this.dispatcher = dispatcher;
         
         for (User user : subscribers) {
-            // In a real implementation, this would send an actual notification
-            System.out.println("Sending to " + user.getName() + ": " + message);
+            subscribe(user, Topic.ALL);
         }
     }
     
+    // Method to send low stock alert
+    public void sendLowStockAlert(Product product, int currentStock, int threshold) {
+        dispatcher.dispatch(new Notification(audience(Topic.ALL, Topic.category(product.getCategory())), () -> String.format(
+            "LOW STOCK ALERT: %s (ID: %s) is below threshold. Current: %d, Threshold: %d",
+            product.getName(), product.getProductId(), currentStock, threshold)));
+    }
+    
     // Overloaded method for multiple low stock items
     public void sendLowStockAlert(List<Product> products, Map<Product, Integer> stockLevels) {
-        StringBuilder message = new StringBuilder("LOW STOCK ALERT: Multiple products need reordering:\n");
-        
-        for (Product product : products) {
-            int currentStock = stockLevels.getOrDefault(product, 0);
-            message.append(String.format("- %s (ID: %s): Current: %d\n", 
-                                       product.getName(), product.getProductId(), currentStock));
-        }
-        
-        for (User user : subscribers) {
-            // In a real implementation, this would send an actual notification
-            System.out.println("Sending to " + user.getName() + ": " + message.toString());
-        }
+        dispatchByTopic(products, product -> new Topic[] { Topic.category(product.getCategory()) }, selected -> {
+            StringBuilder message = new StringBuilder("LOW STOCK ALERT: Multiple products need reordering:\n");
+            
+            for (Product product : selected) {
+                int currentStock = stockLevels.getOrDefault(product, 0);
+                message.append(String.format("- %s (ID: %s): Current: %d\n", 
+                                           product.getName(), product.getProductId(), currentStock));
+            }
+            return message.toString();
+        });
     }
     
     // Varargs method for low stock alerts
     public void sendLowStockAlert(Object... productInfo) {
-        StringBuilder message = new StringBuilder("LOW STOCK ALERT:\n");
+        List<Integer> entries = new ArrayList<>();
+        for (int i = 0; i + 2 < productInfo.length; i += 3) {
+            entries.add(i);
+        }
         
-        for (int i = 0; i < productInfo.length; i += 3) {
-            if (i + 2 < productInfo.length) {
+        dispatchByTopic(entries, i -> new Topic[] { Topic.category(((Product) productInfo[i]).getCategory()) }, selected -> {
+            StringBuilder message = new StringBuilder("LOW STOCK ALERT:\n");
+            
+            for (int i : selected) {
                 Product product = (Product) productInfo[i];
                 Integer currentStock = (Integer) productInfo[i + 1];
                 Integer threshold = (Integer) productInfo[i + 2];
@@ -66,51 +190,175 @@ public class NotificationService {
                                            product.getName(), product.getProductId(), 
                                            currentStock, threshold));
             }
-        }
-        
-        for (User user : subscribers) {
-            // In a real implementation, this would send an actual notification
-            System.out.println("Sending to " + user.getName() + ": " + message.toString());
-        }
+            return message.toString();
+        });
+    }
+    
+    // Method to send the low stock alerts of one coalescing window as a single digest
+    public void sendLowStockDigest(List<LowStockAlertCoalescer.LowStockAlert> alerts) {
+        dispatchByTopic(alerts, alert -> new Topic[] { Topic.location(alert.getLocationId()),
+                                                       Topic.category(alert.getProduct().getCategory()) }, selected -> {
+            StringBuilder message = new StringBuilder(String.format(
+                "LOW STOCK DIGEST: %d product(s) dropped to their reorder threshold:\n", selected.size()));
+            
+            for (LowStockAlertCoalescer.LowStockAlert alert : selected) {
+                message.append(String.format("- %s (ID: %s) at %s: Current: %d, Threshold: %d\n",
+                                           alert.getProduct().getName(), alert.getProduct().getProductId(),
+                                           alert.getLocationId(), alert.getStock(), alert.getThreshold()));
+            }
+            return message.toString();
+        });
     }
     
     // Method to send order update notification
     public void sendOrderUpdate(Order order, String message) {
-        String notification = String.format(
+        // Read the status now, it may move on before the notification is delivered
+        OrderStatus status = order.getStatus();
+        
+        // Notify the users following the placer's and the supplier's orders
+        // With no such subscribers, fall back to addressing the order placer
+        Audience audience = audience(Topic.user(order.getPlacedByUserId()), Topic.user(order.getSupplierUserId()));
+        Supplier<String> text = () -> String.format(
             "ORDER UPDATE: Order %s status: %s. %s",
-            order.getOrderId(), order.getStatus(), message);
+            order.getOrderId(), status, message);
         
-        // Notify the user who placed the order
-        // In a real implementation, this would retrieve the user and send notification
-        System.out.println("Sending to order placer: " + notification);
+        if (audience.isEmpty()) {
+            dispatcher.dispatch(new Notification("order placer", text));
+        } else {
+            dispatcher.dispatch(new Notification(audience, text));
+        }
     }
     
     // Method to send system notification
     public void sendSystemNotification(String subject, String message) {
-        String notification = String.format("SYSTEM NOTIFICATION: %s - %s", subject, message);
-        
-        for (User user : subscribers) {
-            // In a real implementation, this would send an actual notification
-            System.out.println("Sending to " + user.getName() + ": " + notification);
-        }
+        dispatcher.dispatch(new Notification(audience(Topic.ALL), () -> 
+            String.format("SYSTEM NOTIFICATION: %s - %s", subject, message)));
+    }
+    
+    // Overloaded method for a system notification to everyone with a role
+    public void sendSystemNotification(Role role, String subject, String message) {
+        dispatcher.dispatch(new Notification(audience(Topic.ALL, Topic.role(role)), () -> 
+            String.format("SYSTEM NOTIFICATION: %s - %s", subject, message)));
     }
     
-    // Method to subscribe a user to notifications
+    // Method to subscribe a user to all notifications
     public void subscribe(User user) {
-        if (!subscribers.contains(user)) {
-            subscribers.add(user);
+        if (subscribe(user, Topic.ALL)) {
             System.out.println(user.getName() + " subscribed to notifications");
         }
     }
     
-    // Method to unsubscribe a user from notifications
+    // Method to subscribe a user to one topic, returns false if already subscribed
+    public boolean subscribe(User user, Topic topic) {
+        boolean[] added = new boolean[1];
+        subscriptions.compute(topic, (t, users) -> {
+            Set<User> subscribers = (users != null) ? users : ConcurrentHashMap.newKeySet();
+            added[0] = subscribers.add(user);
+            return subscribers;
+        });
+        if (!added[0]) {
+            return false;
+        }
+        topicsByUser.computeIfAbsent(user, u -> ConcurrentHashMap.newKeySet()).add(topic);
+        return true;
+    }
+    
+    // Method to unsubscribe a user from all topics
     public void unsubscribe(User user) {
-        subscribers.remove(user);
+        Set<Topic> topics = topicsByUser.remove(user);
+        if (topics != null) {
+            for (Topic topic : topics) {
+                unsubscribeFrom(user, topic);
+            }
+        }
         System.out.println(user.getName() + " unsubscribed from notifications");
     }
     
-    // Getter for subscribers
+    // Method to unsubscribe a user from one topic, returns false if not subscribed
+    public boolean unsubscribe(User user, Topic topic) {
+        Set<Topic> topics = topicsByUser.get(user);
+        if (topics != null) {
+            topics.remove(topic);
+        }
+        return unsubscribeFrom(user, topic);
+    }
+    
+    // Method to wait briefly until the notifications sent so far have been delivered
+    public void flush() {
+        dispatcher.flush();
+    }
+    
+    // Method to deliver pending notifications and stop the dispatcher
+    public void close() {
+        dispatcher.close();
+    }
+    
+    // Getter for the subscribers to all notifications
     public List<User> getSubscribers() {
-        return subscribers;
+        return getSubscribers(Topic.ALL);
+    }
+    
+    // Method to get the subscribers of one topic
+    public List<User> getSubscribers(Topic topic) {
+        Set<User> users = subscriptions.get(topic);
+        return (users != null) ? new ArrayList<>(users) : new ArrayList<>();
+    }
+    
+    // Drops the topic's set once its last subscriber is gone, atomically with subscribe
+    private boolean unsubscribeFrom(User user, Topic topic) {
+        boolean[] removed = new boolean[1];
+        subscriptions.computeIfPresent(topic, (t, users) -> {
+            removed[0] = users.remove(user);
+            return users.isEmpty() ? null : users;
+        });
+        return removed[0];
+    }
+    
+    // Looks a topic up without creating it, a topic nobody subscribed to has no subscribers
+    // A notification holds on to the live set, so it reaches users who subscribe before delivery
+    private Set<User> subscribersOf(Topic topic) {
+        return subscriptions.getOrDefault(topic, Collections.emptySet());
+    }
+    
+    private Audience audience(Topic... topics) {
+        List<Set<User>> groups = new ArrayList<>(topics.length);
+        for (Topic topic : topics) {
+            groups.add(subscribersOf(topic));
+        }
+        return new Audience(groups);
+    }
+    
+    // Sends a list of items so that each subscriber gets only the items matching its topics
+    // Subscribers to everything get the whole list in a single notification
+    private <T> void dispatchByTopic(List<T> items, Function<T, Topic[]> topicsOf, Function<List<T>, String> format) {
+        Set<User> everyone = subscribersOf(Topic.ALL);
+        if (!everyone.isEmpty()) {
+            dispatcher.dispatch(new Notification(everyone, () -> format.apply(items)));
+        }
+        
+        Map<User, List<T>> targeted = new IdentityHashMap<>();
+        for (T item : items) {
+            for (Topic topic : topicsOf.apply(item)) {
+                Set<User> users = subscriptions.get(topic);
+                if (users == null) {
+                    continue;
+                }
+                for (User user : users) {
+                    if (everyone.contains(user)) {
+                        continue;
+                    }
+                    List<T> selected = targeted.computeIfAbsent(user, u -> new ArrayList<>());
+                    // An item reaching a user through two topics is listed once
+                    if (selected.isEmpty() || selected.get(selected.size() - 1) != item) {
+                        selected.add(item);
+                    }
+                }
+            }
+        }
+        
+        for (Map.Entry<User, List<T>> entry : targeted.entrySet()) {
+            List<T> selected = entry.getValue();
+            dispatcher.dispatch(new Notification(List.of(entry.getKey()), () -> format.apply(selected)));
+        }
     }
 }
\ No newline at end of file
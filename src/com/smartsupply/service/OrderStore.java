@@ -0,0 +1,374 @@
+package com.smartsupply.service;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import com.smartsupply.model.Order;
+import com.smartsupply.model.OrderChangeListener;
+import com.smartsupply.model.OrderStatus;
+
+/**
+ * Service holding all orders with secondary indexes
+ * Orders are indexed by supplier, by the user who placed them, by status and
+ * by supplier and status together. Each index bucket is kept in placement
+ * order. The store listens to its orders, so status, supplier and placer
+ * changes move them between buckets
+ * Orders are also partitioned by the day of their order date, and each day
+ * keeps running order, item and amount totals for date-range sales reports
+ */
+public class OrderStore implements OrderChangeListener {
+    private static final int LOCK_STRIPES = 64;
+    
+    private final AtomicLong nextSequence;
+    private final ConcurrentMap<String, Long> sequences; // orderId -> placement sequence
+    private final ConcurrentSkipListMap<Long, Order> orders;
+    private final ConcurrentMap<String, ConcurrentSkipListMap<Long, Order>> bySupplier;
+    private final ConcurrentMap<String, ConcurrentSkipListMap<Long, Order>> byPlacedBy;
+    private final Map<OrderStatus, ConcurrentSkipListMap<Long, Order>> byStatus;
+    private final ConcurrentMap<String, Map<OrderStatus, ConcurrentSkipListMap<Long, Order>>> bySupplierStatus;
+    private final ConcurrentSkipListMap<Long, DayPartition> byDay; // epoch day -> partition
+    private final ZoneId zone;
+    private final Object[] locks;
+    
+    // Nested class for the orders of one day and their running totals
+    private static class DayPartition {
+        private final ConcurrentSkipListMap<Long, CountedOrder> orders = new ConcurrentSkipListMap<>();
+        private final LongAdder orderCount = new LongAdder();
+        private final LongAdder itemCount = new LongAdder();
+        private final LongAdder amountCents = new LongAdder();
+    }
+    
+    // Nested class remembering what an order currently contributes to its day's totals
+    private static class CountedOrder {
+        private final Order order;
+        private int items;
+        private long cents;
+        
+        CountedOrder(Order order) {
+            this.order = order;
+        }
+    }
+    
+    /**
+     * Sales totals of one day within a report range
+     */
+    public static class DailySales {
+        private final LocalDate day;
+        private final int orderCount;
+        private final long itemCount;
+        private final long amountCents;
+        
+        public DailySales(LocalDate day, int orderCount, long itemCount, long amountCents) {
+            this.day = day;
+            this.orderCount = orderCount;
+            this.itemCount = itemCount;
+            this.amountCents = amountCents;
+        }
+        
+        public LocalDate getDay() {
+            return day;
+        }
+        
+        public int getOrderCount() {
+            return orderCount;
+        }
+        
+        public long getItemCount() {
+            return itemCount;
+        }
+        
+        public double getAmount() {
+            return amountCents / 100.0;
+        }
+    }
+    
+    // Default constructor
+    public OrderStore() {
+        this.nextSequence = new AtomicLong();
+        this.sequences = new ConcurrentHashMap<>();
+        this.orders = new ConcurrentSkipListMap<>();
+        this.bySupplier = new ConcurrentHashMap<>();
+        this.byPlacedBy = new ConcurrentHashMap<>();
+        this.bySupplierStatus = new ConcurrentHashMap<>();
+        this.byDay = new ConcurrentSkipListMap<>();
+        this.zone = ZoneId.systemDefault();
+        
+        // Every status gets its bucket up front, so the map itself is never modified
+        this.byStatus = new EnumMap<>(OrderStatus.class);
+        for (OrderStatus status : OrderStatus.values()) {
+            byStatus.put(status, new ConcurrentSkipListMap<>());
+        }
+        
+        this.locks = new Object[LOCK_STRIPES];
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+    
+    // Method to add an order, returns false if an order with the same ID is already stored
+    public boolean addOrder(Order order) {
+        long sequence = nextSequence.getAndIncrement();
+        if (sequences.putIfAbsent(order.getOrderId(), sequence) != null) {
+            return false;
+        }
+        
+        // Listen first, a change racing with the insert is then re-applied under the same lock
+        order.addChangeListener(this);
+        synchronized (lockFor(order)) {
+            orders.put(sequence, order);
+            bucket(bySupplier, order.getSupplierUserId()).put(sequence, order);
+            bucket(byPlacedBy, order.getPlacedByUserId()).put(sequence, order);
+            byStatus.get(order.getStatus()).put(sequence, order);
+            refileBySupplierStatus(order, sequence);
+            
+            DayPartition partition = byDay.computeIfAbsent(dayOf(order.getOrderDate()), k -> new DayPartition());
+            CountedOrder counted = new CountedOrder(order);
+            partition.orders.put(sequence, counted);
+            partition.orderCount.increment();
+            recount(partition, counted);
+        }
+        return true;
+    }
+    
+    // Method to get an order by ID
+    public Order getOrder(String orderId) {
+        Long sequence = sequences.get(orderId);
+        return (sequence != null) ? orders.get(sequence) : null;
+    }
+    
+    // Method to get all orders in placement order
+    public List<Order> getAllOrders() {
+        return new ArrayList<>(orders.values());
+    }
+    
+    // Method to get the orders of a supplier
+    public List<Order> getOrdersBySupplier(String supplierUserId) {
+        return snapshot(bySupplier.get(key(supplierUserId)));
+    }
+    
+    // Method to get the orders placed by a user
+    public List<Order> getOrdersPlacedBy(String placedByUserId) {
+        return snapshot(byPlacedBy.get(key(placedByUserId)));
+    }
+    
+    // Method to get the orders in any of the given statuses, in placement order
+    public List<Order> getOrdersByStatus(OrderStatus... statuses) {
+        if (statuses.length == 1) {
+            return snapshot(byStatus.get(statuses[0]));
+        }
+        
+        TreeMap<Long, Order> merged = new TreeMap<>();
+        for (OrderStatus status : statuses) {
+            merged.putAll(byStatus.get(status));
+        }
+        return new ArrayList<>(merged.values());
+    }
+    
+    // Method to get the orders of a supplier in any of the given statuses, in placement order
+    // Only the supplier's buckets for those statuses are read, not the supplier's whole history
+    public List<Order> getOrdersBySupplier(String supplierUserId, OrderStatus... statuses) {
+        Map<OrderStatus, ConcurrentSkipListMap<Long, Order>> buckets = bySupplierStatus.get(key(supplierUserId));
+        if (buckets == null) {
+            return new ArrayList<>();
+        }
+        if (statuses.length == 1) {
+            return snapshot(buckets.get(statuses[0]));
+        }
+        
+        TreeMap<Long, Order> merged = new TreeMap<>();
+        for (OrderStatus status : statuses) {
+            merged.putAll(buckets.get(status));
+        }
+        return new ArrayList<>(merged.values());
+    }
+    
+    // Method to get per-day sales totals for orders dated strictly between start and end
+    // Days lying entirely inside the range are read from their running totals;
+    // only the two boundary days are scanned order by order
+    public List<DailySales> getDailySales(Date startDate, Date endDate) {
+        List<DailySales> result = new ArrayList<>();
+        long start = startDate.getTime();
+        long end = endDate.getTime();
+        
+        for (Map.Entry<Long, DayPartition> entry : byDay.subMap(dayOf(startDate), true, dayOf(endDate), true).entrySet()) {
+            LocalDate day = LocalDate.ofEpochDay(entry.getKey());
+            DayPartition partition = entry.getValue();
+            long dayStart = day.atStartOfDay(zone).toInstant().toEpochMilli();
+            long dayEnd = day.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+            
+            if (dayStart > start && dayEnd <= end) {
+                int orders = partition.orderCount.intValue();
+                if (orders > 0) {
+                    result.add(new DailySales(day, orders, partition.itemCount.sum(), partition.amountCents.sum()));
+                }
+                continue;
+            }
+            
+            int orders = 0;
+            long items = 0;
+            long cents = 0;
+            for (CountedOrder counted : partition.orders.values()) {
+                long time = counted.order.getOrderDate().getTime();
+                if (time > start && time < end) {
+                    orders++;
+                    items += counted.order.getItemCount();
+                    cents += counted.order.getTotalCents();
+                }
+            }
+            if (orders > 0) {
+                result.add(new DailySales(day, orders, items, cents));
+            }
+        }
+        return result;
+    }
+    
+    // Method to count the orders in a status
+    public int countByStatus(OrderStatus status) {
+        return byStatus.get(status).size();
+    }
+    
+    // Method to get the number of stored orders
+    public int size() {
+        return orders.size();
+    }
+    
+    @Override
+    public void onStatusChanged(Order order, OrderStatus oldStatus, OrderStatus newStatus) {
+        Long sequence = sequences.get(order.getOrderId());
+        if (sequence == null) {
+            return;
+        }
+        
+        // Re-read the status under the lock so that notifications arriving out of order still leave one bucket
+        synchronized (lockFor(order)) {
+            byStatus.get(oldStatus).remove(sequence);
+            byStatus.get(newStatus).remove(sequence);
+            byStatus.get(order.getStatus()).put(sequence, order);
+            refileBySupplierStatus(order, sequence, order.getSupplierUserId());
+        }
+    }
+    
+    @Override
+    public void onTotalChanged(Order order, double oldTotal, double newTotal) {
+        Long sequence = sequences.get(order.getOrderId());
+        if (sequence == null) {
+            return;
+        }
+        
+        synchronized (lockFor(order)) {
+            DayPartition partition = byDay.get(dayOf(order.getOrderDate()));
+            CountedOrder counted = (partition != null) ? partition.orders.get(sequence) : null;
+            if (counted != null) {
+                recount(partition, counted);
+            }
+        }
+    }
+    
+    @Override
+    public void onSupplierChanged(Order order, String oldSupplierUserId, String newSupplierUserId) {
+        reindex(bySupplier, order, oldSupplierUserId, newSupplierUserId, order.getSupplierUserId());
+        
+        Long sequence = sequences.get(order.getOrderId());
+        if (sequence == null) {
+            return;
+        }
+        synchronized (lockFor(order)) {
+            refileBySupplierStatus(order, sequence, oldSupplierUserId, newSupplierUserId);
+        }
+    }
+    
+    @Override
+    public void onPlacedByChanged(Order order, String oldPlacedByUserId, String newPlacedByUserId) {
+        reindex(byPlacedBy, order, oldPlacedByUserId, newPlacedByUserId, order.getPlacedByUserId());
+    }
+    
+    // Brings a day's totals in line with the order's current items and amount; callers hold the order's lock
+    private static void recount(DayPartition partition, CountedOrder counted) {
+        int items = counted.order.getItemCount();
+        long cents = counted.order.getTotalCents();
+        partition.itemCount.add(items - counted.items);
+        partition.amountCents.add(cents - counted.cents);
+        counted.items = items;
+        counted.cents = cents;
+    }
+    
+    private long dayOf(Date date) {
+        return Instant.ofEpochMilli(date.getTime()).atZone(zone).toLocalDate().toEpochDay();
+    }
+    
+    private void reindex(ConcurrentMap<String, ConcurrentSkipListMap<Long, Order>> index, Order order,
+                         String oldKey, String newKey, String currentKey) {
+        Long sequence = sequences.get(order.getOrderId());
+        if (sequence == null) {
+            return;
+        }
+        
+        synchronized (lockFor(order)) {
+            removeFrom(index, oldKey, sequence);
+            removeFrom(index, newKey, sequence);
+            bucket(index, currentKey).put(sequence, order);
+        }
+    }
+    
+    // Files an order under its current supplier and status after taking it out of the buckets of
+    // the given suppliers; callers hold the order's lock. A supplier has one bucket per status
+    private void refileBySupplierStatus(Order order, long sequence, String... previousSupplierUserIds) {
+        for (String supplierUserId : previousSupplierUserIds) {
+            Map<OrderStatus, ConcurrentSkipListMap<Long, Order>> buckets = bySupplierStatus.get(key(supplierUserId));
+            if (buckets != null) {
+                for (ConcurrentSkipListMap<Long, Order> orders : buckets.values()) {
+                    orders.remove(sequence);
+                }
+            }
+        }
+        
+        bySupplierStatus.computeIfAbsent(key(order.getSupplierUserId()), k -> newStatusBuckets())
+                        .get(order.getStatus()).put(sequence, order);
+    }
+    
+    // Every status gets its bucket up front, so the map is never modified once published
+    private static Map<OrderStatus, ConcurrentSkipListMap<Long, Order>> newStatusBuckets() {
+        Map<OrderStatus, ConcurrentSkipListMap<Long, Order>> buckets = new EnumMap<>(OrderStatus.class);
+        for (OrderStatus status : OrderStatus.values()) {
+            buckets.put(status, new ConcurrentSkipListMap<>());
+        }
+        return buckets;
+    }
+    
+    private static void removeFrom(ConcurrentMap<String, ConcurrentSkipListMap<Long, Order>> index,
+                                   String key, long sequence) {
+        ConcurrentSkipListMap<Long, Order> orders = index.get(key(key));
+        if (orders != null) {
+            orders.remove(sequence);
+        }
+    }
+    
+    private static ConcurrentSkipListMap<Long, Order> bucket(
+            ConcurrentMap<String, ConcurrentSkipListMap<Long, Order>> index, String key) {
+        return index.computeIfAbsent(key(key), k -> new ConcurrentSkipListMap<>());
+    }
+    
+    // ConcurrentHashMap does not accept null keys, orders without a user share the empty key
+    private static String key(String userId) {
+        return (userId != null) ? userId : "";
+    }
+    
+    private static List<Order> snapshot(ConcurrentSkipListMap<Long, Order> orders) {
+        return (orders != null) ? new ArrayList<>(orders.values()) : new ArrayList<>();
+    }
+    
+    private Object lockFor(Order order) {
+        return locks[(order.getOrderId().hashCode() & 0x7fffffff) % LOCK_STRIPES];
+    }
+}
\ No newline at end of file
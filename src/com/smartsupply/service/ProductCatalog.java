@@ -0,0 +1,192 @@
+package com.smartsupply.service;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import com.smartsupply.model.Inventory;
+import com.smartsupply.model.Product;
+import com.smartsupply.model.ProductChangeListener;
+import com.smartsupply.model.StockChangeListener;
+import com.smartsupply.util.BarcodeScanner;
+import com.smartsupply.util.MappedProductCatalog;
+
+/**
+ * Service holding every product known to the system, indexed by supplier
+ * The catalog follows the inventories attached to it, so a product is added
+ * the first time it is stocked anywhere, and it listens to its products so a
+ * supplier change moves the product to the new supplier's bucket
+ * Supplier buckets are kept in productId order
+ * Products are interned on the way in (see Product.intern), so the catalog
+ * and every inventory share one canonical instance per productId
+ * Between runs the catalog is kept in a MappedProductCatalog file
+ */
+public class ProductCatalog implements ProductChangeListener, StockChangeListener {
+    private static final int LOCK_STRIPES = 64;
+    
+    private final ConcurrentMap<String, Product> products; // productId -> product
+    private final ConcurrentMap<String, ConcurrentSkipListMap<String, Product>> bySupplier;
+    private final Object[] locks;
+    
+    // Default constructor
+    public ProductCatalog() {
+        this.products = new ConcurrentHashMap<>();
+        this.bySupplier = new ConcurrentHashMap<>();
+        
+        this.locks = new Object[LOCK_STRIPES];
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+    
+    // Method to add every product of a saved catalog file, does nothing if the file does not exist
+    public void load(String filePath) {
+        if (!new File(filePath).exists()) {
+            return;
+        }
+        
+        try (MappedProductCatalog saved = MappedProductCatalog.open(filePath)) {
+            MappedProductCatalog.View view = saved.view();
+            for (int record = 0; view.moveTo(record); record++) {
+                Product product = intern(view.toProduct());
+                if (view.getBarcode() != null) {
+                    BarcodeScanner.registerBarcode(product.getBarcode(), product); // Saved labels scan again
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Could not load product catalog " + filePath + ": " + e.getMessage());
+        }
+    }
+    
+    // Method to save every catalogued product to a catalog file
+    public void save(String filePath) {
+        try {
+            MappedProductCatalog.write(getAllProducts(), filePath);
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Could not save product catalog " + filePath + ": " + e.getMessage());
+        }
+    }
+    
+    // Method to follow an inventory, adding its current and future products to the catalog
+    public void attach(Inventory inventory) {
+        // Listen first, so a product stocked while the current contents are read is not missed
+        inventory.addStockChangeListener(this);
+        for (Product product : inventory.getStockLevels().keySet()) {
+            addProduct(product);
+        }
+    }
+    
+    // Method to add a product, returns false if a product with the same ID is already catalogued
+    public boolean addProduct(Product product) {
+        return catalog(product.intern());
+    }
+    
+    // Method to get the canonical instance of a product, cataloguing it if it is new
+    // Callers should continue with the returned product and drop their copy
+    public Product intern(Product product) {
+        Product canonical = product.intern();
+        catalog(canonical);
+        return canonical;
+    }
+    
+    // Method to get a catalogued product by its handle, see Product.getHandle
+    public Product getProduct(int handle) {
+        Product product = Product.forHandle(handle);
+        return (product != null && products.get(product.getProductId()) == product) ? product : null;
+    }
+    
+    private boolean catalog(Product product) {
+        if (products.putIfAbsent(product.getProductId(), product) != null) {
+            return false;
+        }
+        
+        // Listen first, a supplier change racing with the insert is then re-applied under the same lock
+        product.addChangeListener(this);
+        synchronized (lockFor(product)) {
+            bucket(product.getSupplierUserId()).put(product.getProductId(), product);
+        }
+        return true;
+    }
+    
+    // Method to remove a product from the catalog
+    public boolean removeProduct(Product product) {
+        if (!products.remove(product.getProductId(), product)) {
+            return false;
+        }
+        
+        product.removeChangeListener(this);
+        synchronized (lockFor(product)) {
+            ConcurrentSkipListMap<String, Product> supplierProducts = bySupplier.get(key(product.getSupplierUserId()));
+            if (supplierProducts != null) {
+                supplierProducts.remove(product.getProductId());
+            }
+        }
+        return true;
+    }
+    
+    // Method to get a product by ID
+    public Product getProduct(String productId) {
+        return products.get(productId);
+    }
+    
+    // Method to get the products of a supplier in productId order
+    public List<Product> getProductsBySupplier(String supplierUserId) {
+        ConcurrentSkipListMap<String, Product> supplierProducts = bySupplier.get(key(supplierUserId));
+        return (supplierProducts != null) ? new ArrayList<>(supplierProducts.values()) : new ArrayList<>();
+    }
+    
+    // Method to get all catalogued products
+    public List<Product> getAllProducts() {
+        return new ArrayList<>(products.values());
+    }
+    
+    // Method to get the number of catalogued products
+    public int size() {
+        return products.size();
+    }
+    
+    // A product that is stocked for the first time anywhere enters the catalog
+    // Removing it from one location does not delist it, it can still be ordered from its supplier
+    @Override
+    public void onStockChanged(Inventory inventory, Product product, int delta) {
+        if (!products.containsKey(product.getProductId())) {
+            addProduct(product);
+        }
+    }
+    
+    @Override
+    public void onSupplierChanged(Product product, String oldSupplierUserId, String newSupplierUserId) {
+        // Re-read the supplier under the lock so that notifications arriving out of order still leave one bucket
+        synchronized (lockFor(product)) {
+            if (products.get(product.getProductId()) != product) {
+                return;
+            }
+            removeFrom(oldSupplierUserId, product);
+            removeFrom(newSupplierUserId, product);
+            bucket(product.getSupplierUserId()).put(product.getProductId(), product);
+        }
+    }
+    
+    private void removeFrom(String supplierUserId, Product product) {
+        ConcurrentSkipListMap<String, Product> supplierProducts = bySupplier.get(key(supplierUserId));
+        if (supplierProducts != null) {
+            supplierProducts.remove(product.getProductId(), product);
+        }
+    }
+    
+    private ConcurrentSkipListMap<String, Product> bucket(String supplierUserId) {
+        return bySupplier.computeIfAbsent(key(supplierUserId), k -> new ConcurrentSkipListMap<>());
+    }
+    
+    // ConcurrentHashMap does not accept null keys, products without a supplier share the empty key
+    private static String key(String supplierUserId) {
+        return (supplierUserId != null) ? supplierUserId : "";
+    }
+    
+    private Object lockFor(Product product) {
+        return locks[(product.getProductId().hashCode() & 0x7fffffff) % LOCK_STRIPES];
+    }
+}
\ No newline at end of file
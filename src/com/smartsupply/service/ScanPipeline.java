@@ -0,0 +1,269 @@
+package com.smartsupply.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import com.smartsupply.event.RingBuffer;
+import com.smartsupply.exception.InventoryException;
+import com.smartsupply.model.Inventory;
+import com.smartsupply.model.Product;
+import com.smartsupply.util.BarcodeScanner;
+
+/**
+ * Service streaming point-of-sale scans of one store into its inventory
+ * Lanes resolve a barcode and put the scan into a bounded lock-free queue.
+ * A background committer drains the queue in micro-batches, nets the scans
+ * per product and removes each batch from the inventory in one call, so the
+ * inventory's locks are taken once per batch instead of once per scan
+ */
+public class ScanPipeline {
+    private static final int DEFAULT_CAPACITY = 65536;
+    private static final int DEFAULT_BATCH_SIZE = 1024;
+    private static final long DEFAULT_BATCH_WINDOW_NANOS = TimeUnit.MILLISECONDS.toNanos(20);
+    private static final long POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(250);
+    private static final long FULL_TIMEOUT_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    
+    /**
+     * One scan at a lane: a product and the number of units scanned
+     */
+    public static class Scan {
+        private final Product product;
+        private final int quantity;
+        
+        public Scan(Product product, int quantity) {
+            this.product = product;
+            this.quantity = quantity;
+        }
+        
+        public Product getProduct() {
+            return product;
+        }
+        
+        public int getQuantity() {
+            return quantity;
+        }
+    }
+    
+    private final Inventory inventory;
+    private final RingBuffer<Scan> queue;
+    private final int batchSize;
+    private final long batchWindowNanos;
+    private final AtomicLong accepted;
+    private final AtomicLong unknown;
+    private final AtomicLong dropped;
+    private final AtomicLong shortUnits;
+    private final Thread committer;
+    private volatile long committed;
+    private volatile boolean committerIdle; // Committer is parked on an empty queue, lanes wake it
+    private volatile boolean running;
+    
+    // Constructor with default queue capacity and batch limits
+    public ScanPipeline(Inventory inventory) {
+        this(inventory, DEFAULT_CAPACITY, DEFAULT_BATCH_SIZE, DEFAULT_BATCH_WINDOW_NANOS);
+    }
+    
+    // Constructor with queue capacity, the largest batch and how long a batch may collect scans
+    public ScanPipeline(Inventory inventory, int capacity, int batchSize, long batchWindowNanos) {
+        if (batchSize <= 0 || batchWindowNanos < 0) {
+            throw new IllegalArgumentException("Batch size must be positive and batch window not negative");
+        }
+        
+        this.inventory = inventory;
+        this.queue = new RingBuffer<>(capacity);
+        this.batchSize = batchSize;
+        this.batchWindowNanos = batchWindowNanos;
+        this.accepted = new AtomicLong();
+        this.unknown = new AtomicLong();
+        this.dropped = new AtomicLong();
+        this.shortUnits = new AtomicLong();
+        this.running = true;
+        
+        this.committer = new Thread(this::commitLoop, "scan-committer-" + inventory.getLocationId());
+        this.committer.setDaemon(true);
+        this.committer.start();
+    }
+    
+    // Method to scan one barcode at a lane, returns the product, or null if the barcode is unknown or the scan was dropped
+    public Product scan(String barcode) {
+        Product product = BarcodeScanner.scanBarcode(barcode);
+        if (product == null) {
+            unknown.incrementAndGet();
+            return null;
+        }
+        
+        return publish(new Scan(product, 1)) ? product : null;
+    }
+    
+    // Method to publish a scan, returns false if the queue stayed full and the scan was dropped
+    // A full queue holds the lane back briefly rather than losing a sale straight away
+    public boolean publish(Scan scan) {
+        if (queue.offer(scan)) {
+            accepted.incrementAndGet();
+            wakeCommitter();
+            return true;
+        }
+        
+        long deadline = System.nanoTime() + FULL_TIMEOUT_NANOS;
+        while (System.nanoTime() < deadline) {
+            LockSupport.parkNanos(POLL_NANOS / 10);
+            if (queue.offer(scan)) {
+                accepted.incrementAndGet();
+                wakeCommitter();
+                return true;
+            }
+        }
+        
+        dropped.incrementAndGet();
+        System.err.println("Scan queue full at " + inventory.getLocationId() + ", dropped scan of " +
+                           scan.getProduct().getName());
+        return false;
+    }
+    
+    // Method to wait briefly until every accepted scan has been committed
+    public void flush() {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        
+        while (committed < accepted.get() && committer.isAlive() && System.nanoTime() < deadline) {
+            LockSupport.parkNanos(POLL_NANOS / 10);
+        }
+    }
+    
+    // Method to commit what is queued and stop the committer
+    public void close() {
+        running = false;
+        LockSupport.unpark(committer);
+        
+        try {
+            committer.join(TimeUnit.SECONDS.toMillis(1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    // Background loop: collect a batch until it is full or its window has passed, net it, commit it
+    private void commitLoop() {
+        List<Scan> batch = new ArrayList<>(batchSize);
+        Map<Product, int[]> totals = new HashMap<>();
+        
+        while (running || !queue.isEmpty()) {
+            if (queue.drainTo(batch, batchSize) == 0) {
+                awaitScans();
+                continue;
+            }
+            
+            long windowEnd = System.nanoTime() + batchWindowNanos;
+            while (batch.size() < batchSize && running && System.nanoTime() < windowEnd) {
+                if (queue.drainTo(batch, batchSize - batch.size()) == 0) {
+                    LockSupport.parkNanos(POLL_NANOS);
+                }
+            }
+            
+            for (Scan scan : batch) {
+                totals.computeIfAbsent(scan.getProduct(), p -> new int[1])[0] += scan.getQuantity();
+            }
+            
+            try {
+                commit(totals);
+            } catch (RuntimeException e) {
+                System.err.println("Error committing scans at " + inventory.getLocationId() + ": " + e.getMessage());
+            }
+            
+            committed += batch.size();
+            batch.clear();
+            totals.clear();
+        }
+    }
+    
+    // Parks the committer until a lane publishes a scan, close stops it or the idle timeout passes
+    // The flag is set before the queue is checked again, so a scan published in between is never
+    // missed: either the check sees the scan or the lane sees the flag
+    private void awaitScans() {
+        committerIdle = true;
+        if (running && queue.isEmpty()) {
+            LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+        }
+        committerIdle = false;
+    }
+    
+    // Wakes the committer if it is parked on an empty queue
+    private void wakeCommitter() {
+        if (committerIdle) {
+            LockSupport.unpark(committer);
+        }
+    }
+    
+    // Removes the netted quantities in one step; if a product is short, each product is removed on its own
+    private void commit(Map<Product, int[]> totals) {
+        Map<Product, Integer> quantities = new HashMap<>();
+        for (Map.Entry<Product, int[]> entry : totals.entrySet()) {
+            quantities.put(entry.getKey(), entry.getValue()[0]);
+        }
+        
+        try {
+            inventory.removeStock(quantities);
+            return;
+        } catch (InventoryException e) {
+            // Fall through: the goods have left the store, so take what the books still hold
+        }
+        
+        for (Map.Entry<Product, Integer> entry : quantities.entrySet()) {
+            Product product = entry.getKey();
+            int quantity = entry.getValue();
+            
+            try {
+                inventory.removeStock(product, quantity);
+            } catch (InventoryException e) {
+                int available = removeAvailable(product, quantity);
+                shortUnits.addAndGet(quantity - available);
+                System.err.println("Scanned " + quantity + " of " + product.getName() + " at " +
+                                   inventory.getLocationId() + " but only " + available + " were in stock");
+            }
+        }
+    }
+    
+    // Removes as much of the quantity as is in stock, returns the number of units removed
+    private int removeAvailable(Product product, int quantity) {
+        while (true) {
+            int available = Math.min(quantity, inventory.getStockCount(product));
+            if (available <= 0) {
+                return 0;
+            }
+            try {
+                inventory.removeStock(product, available);
+                return available;
+            } catch (InventoryException e) {
+                // Stock was taken concurrently, try again with the new count
+            }
+        }
+    }
+    
+    // Getters for monitoring
+    public long getAcceptedCount() {
+        return accepted.get();
+    }
+    
+    public long getCommittedCount() {
+        return committed;
+    }
+    
+    public long getUnknownCount() {
+        return unknown.get();
+    }
+    
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+    
+    public long getShortUnitCount() {
+        return shortUnits.get();
+    }
+    
+    public int getPendingCount() {
+        return queue.size();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,209 @@
+package com.smartsupply.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import com.smartsupply.model.User.UserSession;
+
+/**
+ * Service keeping the open sessions of all terminals, keyed by session token
+ * Sessions that stay idle longer than the idle timeout are expired by a
+ * timer wheel: each session sits in the bucket of the tick its idle time
+ * would run out, and a background thread empties one bucket per tick
+ * Activity only updates the session's last access time; when the wheel
+ * reaches a session that has been used since, it is put back into the
+ * bucket of its new deadline, so touching a session costs a single write
+ */
+public class SessionManager {
+    private static final long DEFAULT_IDLE_TIMEOUT_MILLIS = 30 * 60 * 1000L;
+    private static final long DEFAULT_TICK_MILLIS = 1000L;
+    
+    private final ConcurrentMap<String, UserSession> sessions; // token -> session
+    private final ConcurrentMap<String, Set<UserSession>> byUser; // userId -> sessions
+    private final List<Set<UserSession>> wheel;
+    private final long idleTimeoutMillis;
+    private final long tickMillis;
+    private volatile long currentTick;
+    private volatile boolean closed;
+    private final Thread expirer;
+    
+    // Default constructor
+    public SessionManager() {
+        this(DEFAULT_IDLE_TIMEOUT_MILLIS, DEFAULT_TICK_MILLIS);
+    }
+    
+    // Constructor with custom idle timeout and wheel resolution
+    @SuppressWarnings("unchecked")
+    public SessionManager(long idleTimeoutMillis, long tickMillis) {
+        if (idleTimeoutMillis <= 0 || tickMillis <= 0) {
+            throw new IllegalArgumentException("Idle timeout and tick must be positive");
+        }
+        
+        this.sessions = new ConcurrentHashMap<>();
+        this.byUser = new ConcurrentHashMap<>();
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.tickMillis = tickMillis;
+        this.currentTick = System.currentTimeMillis() / tickMillis;
+        
+        // One revolution covers the idle timeout, so a session is looked at once per timeout at most
+        int buckets = (int) Math.min(idleTimeoutMillis / tickMillis + 2, 1 << 16);
+        this.wheel = new ArrayList<>(buckets);
+        for (int i = 0; i < buckets; i++) {
+            wheel.add(ConcurrentHashMap.newKeySet());
+        }
+        
+        this.expirer = new Thread(this::expiryLoop, "session-expiry");
+        this.expirer.setDaemon(true);
+        this.expirer.start();
+    }
+    
+    // Method to register a session returned by User.login
+    public UserSession register(UserSession session) {
+        sessions.put(session.getToken(), session);
+        byUser.compute(session.getUser().getUserId(), (userId, userSessions) -> {
+            Set<UserSession> updated = (userSessions != null) ? userSessions : ConcurrentHashMap.newKeySet();
+            updated.add(session);
+            return updated;
+        });
+        schedule(session);
+        return session;
+    }
+    
+    // Method to look up a live session by token and record activity on it
+    // Returns null if the token is unknown, ended or has been idle for longer than the timeout
+    public UserSession getSession(String token) {
+        if (token == null) {
+            return null;
+        }
+        
+        UserSession session = sessions.get(token);
+        if (session == null) {
+            return null;
+        }
+        
+        if (!session.isActive() || isIdle(session, System.currentTimeMillis())) {
+            expire(session);
+            return null;
+        }
+        
+        session.touch();
+        return session;
+    }
+    
+    // Method to end a session, returns false if the token is unknown
+    public boolean endSession(String token) {
+        UserSession session = (token != null) ? sessions.get(token) : null;
+        if (session == null) {
+            return false;
+        }
+        
+        expire(session);
+        return true;
+    }
+    
+    // Method to end every session of a user, returns the number of sessions ended
+    public int endSessionsOf(String userId) {
+        Set<UserSession> userSessions = byUser.get(userId);
+        if (userSessions == null) {
+            return 0;
+        }
+        
+        int ended = 0;
+        for (UserSession session : new ArrayList<>(userSessions)) {
+            expire(session);
+            ended++;
+        }
+        return ended;
+    }
+    
+    // Method to get the live sessions of a user
+    public List<UserSession> getSessionsOf(String userId) {
+        Set<UserSession> userSessions = byUser.get(userId);
+        return (userSessions != null) ? new ArrayList<>(userSessions) : new ArrayList<>();
+    }
+    
+    // Method to get the number of open sessions
+    public int size() {
+        return sessions.size();
+    }
+    
+    // Method to stop the expiry thread, sessions stay readable
+    public void close() {
+        closed = true;
+        expirer.interrupt();
+        try {
+            expirer.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private void expiryLoop() {
+        while (!closed) {
+            try {
+                Thread.sleep(tickMillis);
+            } catch (InterruptedException e) {
+                if (closed) {
+                    return;
+                }
+            }
+            
+            try {
+                advance(System.currentTimeMillis());
+            } catch (RuntimeException e) {
+                System.err.println("Error expiring sessions: " + e.getMessage());
+            }
+        }
+    }
+    
+    // Empties every bucket the wheel has passed since the last call
+    private void advance(long now) {
+        long targetTick = now / tickMillis;
+        if (targetTick - currentTick > wheel.size()) {
+            // After a long pause one revolution visits every bucket
+            currentTick = targetTick - wheel.size();
+        }
+        
+        while (currentTick < targetTick) {
+            long tick = currentTick + 1;
+            currentTick = tick;
+            
+            Set<UserSession> bucket = wheel.get((int) (tick % wheel.size()));
+            for (UserSession session : bucket) {
+                bucket.remove(session);
+                if (!session.isActive() || isIdle(session, now)) {
+                    expire(session);
+                } else {
+                    schedule(session);
+                }
+            }
+        }
+    }
+    
+    // Puts a session into the bucket of the tick its idle time runs out
+    // A session added to the bucket being emptied may be missed; it is then picked up one revolution later
+    private void schedule(UserSession session) {
+        long now = currentTick;
+        long deadlineTick = (session.getLastAccessMillis() + idleTimeoutMillis) / tickMillis + 1;
+        deadlineTick = Math.max(deadlineTick, now + 1);
+        deadlineTick = Math.min(deadlineTick, now + wheel.size() - 1);
+        wheel.get((int) (deadlineTick % wheel.size())).add(session);
+    }
+    
+    private boolean isIdle(UserSession session, long now) {
+        return now - session.getLastAccessMillis() >= idleTimeoutMillis;
+    }
+    
+    private void expire(UserSession session) {
+        session.end();
+        sessions.remove(session.getToken(), session);
+        
+        // Done inside compute, so a session registered concurrently never lands in a dropped set
+        byUser.computeIfPresent(session.getUser().getUserId(), (userId, userSessions) -> {
+            userSessions.remove(session);
+            return userSessions.isEmpty() ? null : userSessions;
+        });
+    }
+}
\ No newline at end of file
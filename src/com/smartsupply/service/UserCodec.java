@@ -0,0 +1,75 @@
+package com.smartsupply.service;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import com.smartsupply.model.Admin;
+import com.smartsupply.model.Retailer;
+import com.smartsupply.model.Role;
+import com.smartsupply.model.Supplier;
+import com.smartsupply.model.User;
+import com.smartsupply.model.WarehouseManager;
+
+/**
+ * Versioned binary format for the User hierarchy
+ * A user is written as a format version byte, a role tag byte and then
+ * the fields of its class (see User.writeFields), replacing Java serialization
+ */
+public class UserCodec {
+    public static final int VERSION = 1;
+    
+    // Role tags are part of the file format and must never be renumbered
+    private static final byte ADMIN_TAG = 1;
+    private static final byte SUPPLIER_TAG = 2;
+    private static final byte WAREHOUSE_MANAGER_TAG = 3;
+    private static final byte RETAILER_TAG = 4;
+    
+    // Method to write a user
+    public static void write(User user, DataOutput out) throws IOException {
+        out.writeByte(VERSION);
+        out.writeByte(tagOf(user.getRole()));
+        user.writeFields(out);
+    }
+    
+    // Method to read a user written by write
+    public static User read(DataInput in) throws IOException {
+        int version = in.readUnsignedByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported user record version: " + version);
+        }
+        
+        User user = newUser(in.readByte());
+        user.readFields(in);
+        return user;
+    }
+    
+    private static byte tagOf(Role role) {
+        switch (role) {
+            case ADMIN:
+                return ADMIN_TAG;
+            case SUPPLIER:
+                return SUPPLIER_TAG;
+            case WAREHOUSE_MANAGER:
+                return WAREHOUSE_MANAGER_TAG;
+            case RETAILER:
+                return RETAILER_TAG;
+            default:
+                throw new IllegalArgumentException("No record tag for role: " + role);
+        }
+    }
+    
+    private static User newUser(byte tag) throws IOException {
+        switch (tag) {
+            case ADMIN_TAG:
+                return new Admin();
+            case SUPPLIER_TAG:
+                return new Supplier();
+            case WAREHOUSE_MANAGER_TAG:
+                return new WarehouseManager();
+            case RETAILER_TAG:
+                return new Retailer();
+            default:
+                throw new IOException("Unknown user role tag: " + tag);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,334 @@
+package com.smartsupply.service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+import com.smartsupply.model.User;
+
+/**
+ * Log-structured persistence for user accounts
+ * Each change is appended to a log as one checksummed record instead of
+ * rewriting every user. Once the log outgrows the live user count it is
+ * rotated and a background thread folds it into a compact snapshot
+ * Files: the snapshot (the configured user data file), "<file>.log" and,
+ * while a compaction is running, "<file>.compacting"
+ */
+public class UserStore {
+    private static final int SNAPSHOT_MAGIC = 0x53435553; // "SCUS"
+    private static final int SNAPSHOT_VERSION = 2;        // 1: users as Java serialization, 2: UserCodec
+    private static final int LEGACY_MAGIC = 0xACED;       // Java serialization stream header
+    private static final int COMPACTION_MIN_RECORDS = 1024;
+    private static final int MAX_RECORD = 16 << 20; // Generous, legacy records hold a whole serialized user
+    
+    // Record types
+    private static final byte LEGACY_PUT = 1; // Java-serialized user, read only
+    private static final byte DELETE = 2;
+    private static final byte PUT = 3;        // User in the UserCodec format
+    
+    private final File snapshotFile;
+    private final File logFile;
+    private final File compactingFile;
+    private final Map<String, User> live;
+    
+    // Log state, guarded by this
+    private DataOutputStream log;
+    private int logRecords;
+    private Thread compactor;
+    
+    // Constructor with the snapshot file path
+    public UserStore(String snapshotFile) {
+        this.snapshotFile = new File(snapshotFile);
+        this.logFile = new File(snapshotFile + ".log");
+        this.compactingFile = new File(snapshotFile + ".compacting");
+        this.live = new ConcurrentHashMap<>();
+    }
+    
+    // Method to load all users: snapshot first, then any logs written after it
+    // Leftover logs and older formats are compacted into a fresh snapshot before returning
+    public synchronized Map<String, User> load() {
+        boolean outdated = readSnapshot();
+        int replayed = replayLog(compactingFile) + replayLog(logFile);
+        
+        if (outdated || replayed > 0 || compactingFile.exists()) {
+            try {
+                writeSnapshot(new HashMap<>(live));
+                Files.deleteIfExists(compactingFile.toPath());
+                Files.deleteIfExists(logFile.toPath());
+                if (outdated) {
+                    System.out.println("Migrated " + live.size() + " users to the current user data format.");
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        
+        return new HashMap<>(live);
+    }
+    
+    // Method to record a new or updated user
+    public synchronized void put(User user) {
+        live.put(user.getUserId(), user);
+        append(PUT, user.getUserId(), user);
+    }
+    
+    // Method to record the removal of a user
+    public synchronized void delete(String userId) {
+        live.remove(userId);
+        append(DELETE, userId, null);
+    }
+    
+    // Method to rotate the log and compact it in the background
+    public synchronized void compact() {
+        if (compactor != null) {
+            return; // Previous compaction still running
+        }
+        
+        try {
+            // A compacting log left by a failed compaction holds records that are in no snapshot
+            // Instead of overwriting it, this round folds it into the snapshot and leaves the log
+            // in place; the log is rotated by the next compaction
+            if (!compactingFile.exists()) {
+                closeLog();
+                if (logFile.exists()) {
+                    Files.move(logFile.toPath(), compactingFile.toPath());
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+        
+        Map<String, User> users = new HashMap<>(live);
+        compactor = new Thread(() -> runCompaction(users), "user-store-compactor");
+        compactor.setDaemon(true);
+        compactor.start();
+    }
+    
+    // Method to wait for any compaction and close the log
+    public void close() {
+        Thread running;
+        synchronized (this) {
+            running = compactor;
+        }
+        
+        try {
+            if (running != null) {
+                running.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        
+        synchronized (this) {
+            try {
+                closeLog();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+    
+    private void runCompaction(Map<String, User> users) {
+        try {
+            writeSnapshot(users);
+            Files.deleteIfExists(compactingFile.toPath());
+        } catch (IOException e) {
+            // The compacting log is kept, so the next load replays it
+            e.printStackTrace();
+        } finally {
+            synchronized (this) {
+                compactor = null;
+            }
+        }
+    }
+    
+    // Appends one framed record to the log and schedules compaction when the log grows too long
+    private void append(byte type, String userId, User user) {
+        try {
+            if (log == null) {
+                log = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(logFile, true)));
+            }
+            log.write(encode(type, userId, user));
+            log.flush();
+            logRecords++;
+        } catch (IOException e) {
+            e.printStackTrace();
+            // In production, log the error properly
+        }
+        
+        if (logRecords >= COMPACTION_MIN_RECORDS && logRecords > live.size()) {
+            compact();
+        }
+    }
+    
+    private void closeLog() throws IOException {
+        if (log != null) {
+            log.close();
+            log = null;
+        }
+        logRecords = 0;
+    }
+    
+    // Reads the snapshot into the live map, returns true if it is in an older format
+    @SuppressWarnings("unchecked")
+    private boolean readSnapshot() {
+        if (!snapshotFile.exists() || snapshotFile.length() == 0) {
+            return false;
+        }
+        
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(snapshotFile)))) {
+            in.mark(4);
+            if (in.readUnsignedShort() == LEGACY_MAGIC) {
+                in.reset();
+                Object obj = new ObjectInputStream(in).readObject();
+                if (obj instanceof Map) {
+                    live.putAll((Map<String, User>) obj);
+                }
+                return true;
+            }
+            
+            in.reset();
+            if (in.readInt() != SNAPSHOT_MAGIC) {
+                throw new IOException("Unrecognized user data file: " + snapshotFile);
+            }
+            int version = in.readInt();
+            if (version < 1 || version > SNAPSHOT_VERSION) {
+                throw new IOException("Unsupported user data version: " + version);
+            }
+            readRecords(in, snapshotFile, snapshotFile.length() - 8);
+            return version < SNAPSHOT_VERSION;
+        } catch (IOException | ClassNotFoundException e) {
+            e.printStackTrace();
+            // In production, log the error properly
+        }
+        return false;
+    }
+    
+    // Replays a log file into the live map, returns the number of records applied
+    private int replayLog(File file) {
+        if (!file.exists()) {
+            return 0;
+        }
+        
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            return readRecords(in, file, file.length());
+        } catch (IOException e) {
+            e.printStackTrace();
+            return 0;
+        }
+    }
+    
+    // Applies framed records until end of file or the first torn or corrupt record
+    private int readRecords(DataInputStream in, File file, long remaining) throws IOException {
+        int applied = 0;
+        
+        while (true) {
+            byte[] payload;
+            try {
+                int length = in.readInt();
+                remaining -= 4;
+                
+                // A torn or garbage length is a corrupt record, check it before allocating
+                if (length < 0 || length > MAX_RECORD || length + 4L > remaining) {
+                    System.err.println("Ignoring corrupt record at the end of " + file.getName());
+                    return applied;
+                }
+                remaining -= length + 4L;
+                
+                payload = new byte[length];
+                in.readFully(payload);
+                if (in.readInt() != checksum(payload)) {
+                    System.err.println("Ignoring corrupt record at the end of " + file.getName());
+                    return applied;
+                }
+            } catch (EOFException e) {
+                return applied;
+            }
+            
+            DataInputStream record = new DataInputStream(new ByteArrayInputStream(payload));
+            byte type = record.readByte();
+            String userId = record.readUTF();
+            
+            if (type == PUT) {
+                live.put(userId, UserCodec.read(record));
+            } else if (type == LEGACY_PUT) {
+                byte[] body = new byte[record.readInt()];
+                record.readFully(body);
+                User user = deserialize(body);
+                if (user != null) {
+                    live.put(userId, user);
+                }
+            } else if (type == DELETE) {
+                live.remove(userId);
+            }
+            applied++;
+        }
+    }
+    
+    // Writes all users to a temporary file and atomically replaces the snapshot
+    private void writeSnapshot(Map<String, User> users) throws IOException {
+        File temp = new File(snapshotFile.getPath() + ".tmp");
+        
+        try (FileOutputStream file = new FileOutputStream(temp);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file))) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(SNAPSHOT_VERSION);
+            for (User user : users.values()) {
+                out.write(encode(PUT, user.getUserId(), user));
+            }
+            out.flush();
+            file.getFD().sync();
+        }
+        
+        Files.move(temp.toPath(), snapshotFile.toPath(),
+                   StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+    
+    // Frames a record as length, payload, CRC32 of payload
+    private static byte[] encode(byte type, String userId, User user) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(type);
+        out.writeUTF(userId);
+        if (type == PUT) {
+            UserCodec.write(user, out);
+        }
+        
+        byte[] payload = bytes.toByteArray();
+        ByteBuffer framed = ByteBuffer.allocate(payload.length + 8);
+        framed.putInt(payload.length).put(payload).putInt(checksum(payload));
+        return framed.array();
+    }
+    
+    // Decodes a user body from a version 1 store
+    private static User deserialize(byte[] body) {
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(body))) {
+            return (User) ois.readObject();
+        } catch (IOException | ClassNotFoundException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+    
+    private static int checksum(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,171 @@
+package com.smartsupply.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Utility class issuing and checking product barcodes and QR codes
+ * Codes are a sequence number in base 36 followed by an ISO 7064 MOD 37,36
+ * check character, which catches every single wrong character and all but
+ * a few swaps of two neighbouring characters:
+ *   BC-SSSSSSSC    (7 sequence characters, 36^7 codes)
+ *   QC-SSSSSSSSSSSC (11 sequence characters, same sequence as the barcode)
+ * The prefixes differ from the older BAR-/QR- codes, which carry no check
+ * character and are left to plain lookups
+ * Codes are issued from one counter and skip any code already registered
+ * with BarcodeScanner, so issued codes never collide
+ */
+public class BarcodeCodec {
+    public static final String BARCODE_PREFIX = "BC-";
+    public static final String QR_PREFIX = "QC-";
+    private static final int BARCODE_DIGITS = 7;
+    private static final int QR_DIGITS = 11;
+    private static final int RADIX = 36;
+    private static final char[] ALPHABET = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ".toCharArray();
+    private static final long MAX_SEQUENCE = pow(RADIX, BARCODE_DIGITS) - 1;
+    
+    private static final AtomicLong nextSequence = new AtomicLong(1);
+    
+    // Method to issue a new barcode that is not registered yet
+    public static String nextBarcode() {
+        while (true) {
+            String barcode = encode(BARCODE_PREFIX, issueSequence(), BARCODE_DIGITS);
+            if (BarcodeScanner.scanBarcode(barcode) == null) {
+                return barcode;
+            }
+        }
+    }
+    
+    // Method to get the QR code that belongs to a barcode
+    // Barcodes issued by this class map to the QR code of the same sequence number, any other
+    // barcode gets a QR code with a new sequence number
+    public static String qrCodeFor(String barcode) {
+        long sequence = isValidBarcode(barcode) ? decode(barcode, BARCODE_PREFIX.length(), BARCODE_DIGITS) : -1;
+        
+        while (true) {
+            if (sequence < 0) {
+                sequence = issueSequence();
+            }
+            String qrCode = encode(QR_PREFIX, sequence, QR_DIGITS);
+            if (BarcodeScanner.scanQRCode(qrCode) == null) {
+                return qrCode;
+            }
+            sequence = -1; // Taken by some other product, fall back to a fresh number
+        }
+    }
+    
+    // Method to check whether a scanned barcode has this class's form and a correct check character
+    public static boolean isValidBarcode(String barcode) {
+        return isValid(barcode, BARCODE_PREFIX, BARCODE_DIGITS);
+    }
+    
+    // Method to check whether a scanned QR code has this class's form and a correct check character
+    public static boolean isValidQRCode(String qrCode) {
+        return isValid(qrCode, QR_PREFIX, QR_DIGITS);
+    }
+    
+    // Method to check whether a code has the length and prefix of an issued barcode, valid or not
+    public static boolean hasBarcodeForm(String code) {
+        return code != null && code.length() == BARCODE_PREFIX.length() + BARCODE_DIGITS + 1 &&
+               code.startsWith(BARCODE_PREFIX);
+    }
+    
+    // Method to check whether a code has the length and prefix of an issued QR code, valid or not
+    public static boolean hasQRCodeForm(String code) {
+        return code != null && code.length() == QR_PREFIX.length() + QR_DIGITS + 1 &&
+               code.startsWith(QR_PREFIX);
+    }
+    
+    // Method to make sure a code registered from elsewhere is never issued again
+    public static void reserve(String code) {
+        long sequence = -1;
+        if (isValidBarcode(code)) {
+            sequence = decode(code, BARCODE_PREFIX.length(), BARCODE_DIGITS);
+        } else if (isValidQRCode(code)) {
+            sequence = decode(code, QR_PREFIX.length(), QR_DIGITS);
+        }
+        
+        if (sequence >= 0 && sequence <= MAX_SEQUENCE) {
+            long next = sequence + 1;
+            nextSequence.accumulateAndGet(next, Math::max);
+        }
+    }
+    
+    // Single pass over the code without allocation: prefix, alphabet, then the check character
+    private static boolean isValid(String code, String prefix, int digits) {
+        if (code == null || code.length() != prefix.length() + digits + 1 || !code.startsWith(prefix)) {
+            return false;
+        }
+        
+        int product = RADIX;
+        for (int i = prefix.length(); i < code.length(); i++) {
+            int value = valueOf(code.charAt(i));
+            if (value < 0) {
+                return false;
+            }
+            product = step(product, value);
+        }
+        return product == 2; // The check character brings the last sum to 1, which the final step doubles
+    }
+    
+    private static long issueSequence() {
+        long sequence = nextSequence.getAndIncrement();
+        if (sequence > MAX_SEQUENCE) {
+            throw new IllegalStateException("Barcode sequence exhausted");
+        }
+        return sequence;
+    }
+    
+    private static String encode(String prefix, long sequence, int digits) {
+        char[] code = new char[prefix.length() + digits + 1];
+        prefix.getChars(0, prefix.length(), code, 0);
+        
+        long rest = sequence;
+        for (int i = prefix.length() + digits - 1; i >= prefix.length(); i--) {
+            code[i] = ALPHABET[(int) (rest % RADIX)];
+            rest /= RADIX;
+        }
+        
+        int product = RADIX;
+        for (int i = prefix.length(); i < prefix.length() + digits; i++) {
+            product = step(product, valueOf(code[i]));
+        }
+        code[code.length - 1] = ALPHABET[(RADIX + 1 - product) % RADIX];
+        return new String(code);
+    }
+    
+    private static long decode(String code, int offset, int digits) {
+        long sequence = 0;
+        for (int i = offset; i < offset + digits; i++) {
+            sequence = sequence * RADIX + valueOf(code.charAt(i));
+        }
+        return sequence;
+    }
+    
+    // One step of ISO 7064 MOD 37,36, written with subtractions since product is 1..36 and value 0..35
+    private static int step(int product, int value) {
+        int sum = product + value;
+        if (sum > RADIX) {
+            sum -= RADIX;
+        }
+        int doubled = sum * 2;
+        return (doubled > RADIX) ? doubled - (RADIX + 1) : doubled;
+    }
+    
+    private static int valueOf(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        if (c >= 'A' && c <= 'Z') {
+            return c - 'A' + 10;
+        }
+        return -1;
+    }
+    
+    private static long pow(int base, int exponent) {
+        long result = 1;
+        for (int i = 0; i < exponent; i++) {
+            result *= base;
+        }
+        return result;
+    }
+}
\ No newline at end of file
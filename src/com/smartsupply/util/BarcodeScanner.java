@@ -7,34 +7,46 @@ import com.smartsupply.model.Product;
 
 /**
  * Utility class for barcode/QR code scanning operations
+ * The registries are safe for concurrent registration and scanning; codes
+ * in the BC-/QC- forms issued by BarcodeCodec are looked up by packed keys
+ * and rejected on a wrong check character before the registry is consulted
+ * Older codes in other forms are looked up as they are
  */
 public class BarcodeScanner {
-    private static Map<String, Product> barcodeRegistry = new HashMap<>();
-    private static Map<String, Product> qrCodeRegistry = new HashMap<>();
+    private static final ProductCodeRegistry barcodeRegistry = new ProductCodeRegistry(BarcodeCodec.BARCODE_PREFIX, 8);
+    private static final ProductCodeRegistry qrCodeRegistry = new ProductCodeRegistry(BarcodeCodec.QR_PREFIX, 12);
     private static Random random = new Random();
     
     // Method to register a product barcode
     public static void registerBarcode(String barcode, Product product) {
-        barcodeRegistry.put(barcode, product);
+        BarcodeCodec.reserve(barcode);
+        barcodeRegistry.register(barcode, product);
     }
     
     // Method to register a product QR code
     public static void registerQRCode(String qrCode, Product product) {
-        qrCodeRegistry.put(qrCode, product);
+        BarcodeCodec.reserve(qrCode);
+        qrCodeRegistry.register(qrCode, product);
     }
     
     // Method to scan a barcode
     public static Product scanBarcode(String barcode) {
         // In a real implementation, this would interface with hardware
         // For simulation purposes, we just look up the product
-        return barcodeRegistry.get(barcode);
+        if (BarcodeCodec.hasBarcodeForm(barcode) && !BarcodeCodec.isValidBarcode(barcode)) {
+            return null; // Misread
+        }
+        return barcodeRegistry.lookup(barcode);
     }
     
     // Method to scan a QR code
     public static Product scanQRCode(String qrCode) {
         // In a real implementation, this would interface with hardware
         // For simulation purposes, we just look up the product
-        return qrCodeRegistry.get(qrCode);
+        if (BarcodeCodec.hasQRCodeForm(qrCode) && !BarcodeCodec.isValidQRCode(qrCode)) {
+            return null; // Misread
+        }
+        return qrCodeRegistry.lookup(qrCode);
     }
     
     // Method to generate a random barcode
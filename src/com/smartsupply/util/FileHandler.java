@@ -70,16 +70,17 @@ public class FileHandler {
                     String barcode = parts[5].trim();
                     boolean active = Boolean.parseBoolean(parts[6].trim());
                     
-                    Product product = new Product(productId, name, price);
+                    // A product that is already loaded is reused rather than duplicated
+                    // The file's details go through its setters, so its listeners hear about them
+                    Product product = new Product(productId, name, price).intern();
+                    product.setName(name);
+                    product.setPrice(price);
                     product.setCategory(category);
                     product.setSupplierUserId(supplierId);
                     if (barcode != null && !barcode.isEmpty()) {
-                        // In a real implementation, you'd set the barcode directly
-                        // For simplicity, we'll just generate a new one
-                        product.generateBarcode();
+                        product.setBarcode(barcode); // Keep the printed labels valid
                     }
                     product.setActive(active);
-                    
                     products.add(product);
                 }
             }
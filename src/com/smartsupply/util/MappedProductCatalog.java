@@ -0,0 +1,384 @@
+package com.smartsupply.util;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import com.smartsupply.model.Product;
+
+/**
+ * Read-optimized product catalog kept in a memory-mapped file
+ * Products are stored as fixed-width records, followed by an open-addressing
+ * productId index, so lookups and scans read the mapped pages directly and
+ * nothing but the small View cursors lives on the heap
+ * String fields have fixed widths: a product ID that does not fit is rejected,
+ * other text is cut at a character boundary
+ */
+public class MappedProductCatalog implements AutoCloseable {
+    private static final int MAGIC = 0x53435043; // "SCPC"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    
+    // Record layout: strings are a 2-byte length followed by UTF-8 bytes
+    private static final int ID_OFFSET = 0;
+    private static final int ID_WIDTH = 40;
+    private static final int NAME_OFFSET = 40;
+    private static final int NAME_WIDTH = 96;
+    private static final int DESCRIPTION_OFFSET = 136;
+    private static final int DESCRIPTION_WIDTH = 256;
+    private static final int CATEGORY_OFFSET = 392;
+    private static final int CATEGORY_WIDTH = 40;
+    private static final int SUPPLIER_OFFSET = 432;
+    private static final int SUPPLIER_WIDTH = 40;
+    private static final int BARCODE_OFFSET = 472;
+    private static final int BARCODE_WIDTH = 40;
+    private static final int PRICE_CENTS_OFFSET = 512;
+    private static final int CREATED_OFFSET = 520;
+    private static final int FLAGS_OFFSET = 528;
+    private static final int RECORD_SIZE = 536;
+    
+    private static final int ACTIVE = 1;
+    
+    // Index slots are {int hash, int record + 1}; 0 marks an empty slot
+    private static final int SLOT_SIZE = 8;
+    
+    // A single mapping is limited to 2GB, so records are mapped in segments
+    private static final int RECORDS_PER_SEGMENT = Integer.MAX_VALUE / RECORD_SIZE;
+    
+    private final FileChannel channel;
+    private final MappedByteBuffer[] segments;
+    private final MappedByteBuffer index;
+    private final int recordCount;
+    private final int indexMask;
+    
+    /**
+     * Flyweight cursor over one catalog record
+     * A view reads the mapped region on every call and can be moved to
+     * another record, so a whole scan needs only one view object
+     */
+    public class View {
+        private int record = -1;
+        
+        // Method to point this view at a record number, returns false if out of range
+        public boolean moveTo(int record) {
+            if (record < 0 || record >= recordCount) {
+                return false;
+            }
+            this.record = record;
+            return true;
+        }
+        
+        // Method to point this view at a product, returns false if it is not in the catalog
+        public boolean moveTo(String productId) {
+            return moveTo(find(productId));
+        }
+        
+        public int getRecord() {
+            return record;
+        }
+        
+        public String getProductId() {
+            return readString(record, ID_OFFSET);
+        }
+        
+        public String getName() {
+            return readString(record, NAME_OFFSET);
+        }
+        
+        public String getDescription() {
+            return readString(record, DESCRIPTION_OFFSET);
+        }
+        
+        public String getCategory() {
+            return readString(record, CATEGORY_OFFSET);
+        }
+        
+        public String getSupplierUserId() {
+            return readString(record, SUPPLIER_OFFSET);
+        }
+        
+        public String getBarcode() {
+            return readString(record, BARCODE_OFFSET);
+        }
+        
+        public long getPriceCents() {
+            return segmentOf(record).getLong(positionOf(record) + PRICE_CENTS_OFFSET);
+        }
+        
+        public double getPrice() {
+            return getPriceCents() / 100.0;
+        }
+        
+        public Date getCreatedDate() {
+            return new Date(segmentOf(record).getLong(positionOf(record) + CREATED_OFFSET));
+        }
+        
+        public boolean isActive() {
+            return (segmentOf(record).getInt(positionOf(record) + FLAGS_OFFSET) & ACTIVE) != 0;
+        }
+        
+        // Method to materialize a heap Product from the record
+        // A product that is already on the heap is returned as is, so records never duplicate it
+        public Product toProduct() {
+            Product product = new Product(getProductId(), getName(), getPrice(),
+                                          getDescription(), getCategory(), getSupplierUserId());
+            product.setCreatedDate(getCreatedDate());
+            product.setActive(isActive());
+            String barcode = getBarcode();
+            if (barcode != null) {
+                product.setBarcode(barcode);
+            }
+            return product.intern();
+        }
+    }
+    
+    // Constructor is private, use open
+    private MappedProductCatalog(FileChannel channel) throws IOException {
+        this.channel = channel;
+        
+        ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+        if (header.getInt(0) != MAGIC) {
+            throw new IOException("Not a product catalog file");
+        }
+        if (header.getInt(4) != VERSION) {
+            throw new IOException("Unsupported product catalog version: " + header.getInt(4));
+        }
+        if (header.getInt(12) != RECORD_SIZE) {
+            throw new IOException("Unexpected product catalog record size: " + header.getInt(12));
+        }
+        
+        this.recordCount = header.getInt(8);
+        int indexCapacity = header.getInt(16);
+        long indexOffset = header.getLong(24);
+        this.indexMask = indexCapacity - 1;
+        
+        int segmentCount = (recordCount + RECORDS_PER_SEGMENT - 1) / RECORDS_PER_SEGMENT;
+        this.segments = new MappedByteBuffer[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            int records = Math.min(RECORDS_PER_SEGMENT, recordCount - i * RECORDS_PER_SEGMENT);
+            long offset = HEADER_SIZE + (long) i * RECORDS_PER_SEGMENT * RECORD_SIZE;
+            segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, offset, (long) records * RECORD_SIZE);
+        }
+        this.index = channel.map(FileChannel.MapMode.READ_ONLY, indexOffset, (long) indexCapacity * SLOT_SIZE);
+    }
+    
+    // Method to open a catalog file for reading
+    public static MappedProductCatalog open(String filePath) throws IOException {
+        FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ);
+        try {
+            return new MappedProductCatalog(channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+    
+    // Method to write a catalog file for the given products
+    // The file is written next to the target and moved over it, so an open catalog is never seen half written
+    public static void write(Collection<Product> products, String filePath) throws IOException {
+        String tempPath = filePath + ".tmp";
+        int recordCount = products.size();
+        int indexCapacity = Integer.highestOneBit(Math.max(recordCount * 2, 8) - 1) << 1; // Load factor <= 0.5
+        int[] slots = new int[indexCapacity * 2];
+        String[] ids = new String[recordCount];
+        int mask = indexCapacity - 1;
+        
+        try (FileOutputStream file = new FileOutputStream(tempPath);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(recordCount);
+            out.writeInt(RECORD_SIZE);
+            out.writeInt(indexCapacity);
+            out.writeInt(0);
+            out.writeLong(HEADER_SIZE + (long) recordCount * RECORD_SIZE);
+            out.write(new byte[HEADER_SIZE - 32]);
+            
+            byte[] record = new byte[RECORD_SIZE];
+            ByteBuffer buffer = ByteBuffer.wrap(record);
+            int recordNumber = 0;
+            
+            for (Product product : products) {
+                byte[] id = product.getProductId().getBytes(StandardCharsets.UTF_8);
+                if (id.length > ID_WIDTH - 2) {
+                    throw new IllegalArgumentException("Product ID too long for catalog: " + product.getProductId());
+                }
+                
+                // Claim an index slot first so duplicates are rejected before anything is written
+                int hash = spread(product.getProductId().hashCode());
+                int slot = hash & mask;
+                while (slots[slot * 2 + 1] != 0) {
+                    if (slots[slot * 2] == hash && ids[slots[slot * 2 + 1] - 1].equals(product.getProductId())) {
+                        throw new IllegalArgumentException("Duplicate product ID in catalog: " + product.getProductId());
+                    }
+                    slot = (slot + 1) & mask;
+                }
+                slots[slot * 2] = hash;
+                slots[slot * 2 + 1] = recordNumber + 1;
+                ids[recordNumber] = product.getProductId();
+                
+                Arrays.fill(record, (byte) 0);
+                putString(buffer, ID_OFFSET, ID_WIDTH, id);
+                putString(buffer, NAME_OFFSET, NAME_WIDTH, product.getName());
+                putString(buffer, DESCRIPTION_OFFSET, DESCRIPTION_WIDTH, product.getDescription());
+                putString(buffer, CATEGORY_OFFSET, CATEGORY_WIDTH, product.getCategory());
+                putString(buffer, SUPPLIER_OFFSET, SUPPLIER_WIDTH, product.getSupplierUserId());
+                putString(buffer, BARCODE_OFFSET, BARCODE_WIDTH, product.getBarcode());
+                buffer.putLong(PRICE_CENTS_OFFSET, product.getPriceCents());
+                buffer.putLong(CREATED_OFFSET, product.getCreatedDate().getTime());
+                buffer.putInt(FLAGS_OFFSET, product.isActive() ? ACTIVE : 0);
+                out.write(record);
+                recordNumber++;
+            }
+            
+            for (int value : slots) {
+                out.writeInt(value);
+            }
+            out.flush();
+            file.getFD().sync();
+        }
+        
+        Files.move(Paths.get(tempPath), Paths.get(filePath),
+                   StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+    
+    // Method to find the record number of a product, or -1 if it is not in the catalog
+    public int find(String productId) {
+        if (productId == null) {
+            return -1;
+        }
+        
+        int hash = spread(productId.hashCode());
+        int slot = hash & indexMask;
+        
+        while (true) {
+            int position = slot * SLOT_SIZE;
+            int record = index.getInt(position + 4) - 1;
+            if (record < 0) {
+                return -1;
+            }
+            if (index.getInt(position) == hash && idMatches(record, productId)) {
+                return record;
+            }
+            slot = (slot + 1) & indexMask;
+        }
+    }
+    
+    // Method to get a view positioned on a product, or null if it is not in the catalog
+    public View get(String productId) {
+        View view = new View();
+        return view.moveTo(productId) ? view : null;
+    }
+    
+    // Method to get an unpositioned view, for scans with moveTo(int)
+    public View view() {
+        return new View();
+    }
+    
+    // Method to materialize a product from the catalog, or null if it is not in the catalog
+    public Product getProduct(String productId) {
+        View view = get(productId);
+        return (view != null) ? view.toProduct() : null;
+    }
+    
+    // Method to get the number of products in the catalog
+    public int size() {
+        return recordCount;
+    }
+    
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+    
+    private MappedByteBuffer segmentOf(int record) {
+        return segments[record / RECORDS_PER_SEGMENT];
+    }
+    
+    private static int positionOf(int record) {
+        return (record % RECORDS_PER_SEGMENT) * RECORD_SIZE;
+    }
+    
+    // Compares a stored product ID with the UTF-8 form of productId without building a String
+    private boolean idMatches(int record, String productId) {
+        MappedByteBuffer segment = segmentOf(record);
+        int position = positionOf(record) + ID_OFFSET;
+        int length = segment.getShort(position);
+        
+        // ASCII IDs are compared char by byte; anything else is encoded once
+        int chars = productId.length();
+        for (int i = 0; i < chars; i++) {
+            if (productId.charAt(i) >= 0x80) {
+                return bytesMatch(segment, position + 2, length, productId.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        
+        if (length != chars) {
+            return false;
+        }
+        for (int i = 0; i < chars; i++) {
+            if (segment.get(position + 2 + i) != (byte) productId.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private static boolean bytesMatch(MappedByteBuffer segment, int position, int length, byte[] bytes) {
+        if (length != bytes.length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (segment.get(position + i) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private String readString(int record, int fieldOffset) {
+        MappedByteBuffer segment = segmentOf(record);
+        int position = positionOf(record) + fieldOffset;
+        int length = segment.getShort(position);
+        if (length < 0) {
+            return null;
+        }
+        
+        byte[] bytes = new byte[length];
+        segment.get(position + 2, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+    
+    private static void putString(ByteBuffer buffer, int fieldOffset, int width, String value) {
+        if (value == null) {
+            buffer.putShort(fieldOffset, (short) -1);
+            return;
+        }
+        putString(buffer, fieldOffset, width, value.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    private static void putString(ByteBuffer buffer, int fieldOffset, int width, byte[] bytes) {
+        int length = Math.min(bytes.length, width - 2);
+        // Do not cut a multi-byte character in half
+        while (length < bytes.length && length > 0 && (bytes[length] & 0xC0) == 0x80) {
+            length--;
+        }
+        buffer.putShort(fieldOffset, (short) length);
+        buffer.put(fieldOffset + 2, bytes, 0, length);
+    }
+    
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,165 @@
+package com.smartsupply.util;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import com.smartsupply.model.Product;
+
+/**
+ * Thread-safe registry from product codes (barcodes, QR codes) to products
+ * Codes in the fixed form prefix + 1 to maxChars characters of [0-9A-Z] are
+ * packed into a long (base 37, so different lengths never collide) and kept
+ * in an open-addressing table of primitive keys. Lookups read the table
+ * without locks or allocation; registrations are serialized and publish a
+ * grown table in one step. Codes in any other form go to a concurrent map
+ */
+public class ProductCodeRegistry {
+    private static final int MAX_PACKED_CHARS = 12; // 37^12 still fits into a positive long
+    private static final int INITIAL_CAPACITY = 64;
+    
+    private final String prefix;
+    private final int maxChars;
+    private final ConcurrentMap<String, Product> otherCodes;
+    private volatile Table table;
+    
+    // Nested class for one generation of the open-addressing table, 0 marks an empty slot
+    private static class Table {
+        private final AtomicLongArray keys;
+        private final AtomicReferenceArray<Product> products;
+        private final int mask;
+        private int size; // Guarded by the registry's lock
+        
+        Table(int capacity) {
+            this.keys = new AtomicLongArray(capacity);
+            this.products = new AtomicReferenceArray<>(capacity);
+            this.mask = capacity - 1;
+        }
+    }
+    
+    // Constructor with the code prefix and the longest code body that is packed
+    public ProductCodeRegistry(String prefix, int maxChars) {
+        if (maxChars < 1 || maxChars > MAX_PACKED_CHARS) {
+            throw new IllegalArgumentException("Packed codes hold 1 to " + MAX_PACKED_CHARS + " characters");
+        }
+        
+        this.prefix = prefix;
+        this.maxChars = maxChars;
+        this.otherCodes = new ConcurrentHashMap<>();
+        this.table = new Table(INITIAL_CAPACITY);
+    }
+    
+    // Method to register the product for a code, replacing any earlier registration
+    public void register(String code, Product product) {
+        long key = pack(code);
+        if (key < 0) {
+            otherCodes.put(code, product);
+            return;
+        }
+        
+        synchronized (this) {
+            Table current = table;
+            if ((current.size + 1) * 2 > current.mask + 1) {
+                current = grow(current);
+            }
+            if (insert(current, key, product)) {
+                current.size++;
+            }
+        }
+    }
+    
+    // Method to look up the product for a code, or null if it is not registered
+    public Product lookup(String code) {
+        long key = pack(code);
+        if (key < 0) {
+            return (code != null) ? otherCodes.get(code) : null;
+        }
+        
+        Table current = table;
+        int slot = spread(key) & current.mask;
+        while (true) {
+            long candidate = current.keys.get(slot);
+            if (candidate == key) {
+                return current.products.get(slot);
+            }
+            if (candidate == 0) {
+                return null;
+            }
+            slot = (slot + 1) & current.mask;
+        }
+    }
+    
+    // Method to get the number of registered codes
+    public synchronized int size() {
+        return table.size + otherCodes.size();
+    }
+    
+    // Method to remove every registration
+    public synchronized void clear() {
+        table = new Table(INITIAL_CAPACITY);
+        otherCodes.clear();
+    }
+    
+    // Packs prefix + [0-9A-Z]{1,maxChars} into a positive long, or returns -1 for any other form
+    long pack(String code) {
+        if (code == null || !code.startsWith(prefix)) {
+            return -1;
+        }
+        
+        int length = code.length() - prefix.length();
+        if (length < 1 || length > maxChars) {
+            return -1;
+        }
+        
+        long key = 0;
+        for (int i = prefix.length(); i < code.length(); i++) {
+            char c = code.charAt(i);
+            int digit;
+            if (c >= '0' && c <= '9') {
+                digit = c - '0' + 1;
+            } else if (c >= 'A' && c <= 'Z') {
+                digit = c - 'A' + 11;
+            } else {
+                return -1;
+            }
+            key = key * 37 + digit;
+        }
+        return key;
+    }
+    
+    // Returns true if the key was new; the product is published before the key so readers never see a key without it
+    private static boolean insert(Table table, long key, Product product) {
+        int slot = spread(key) & table.mask;
+        while (true) {
+            long candidate = table.keys.get(slot);
+            if (candidate == key) {
+                table.products.set(slot, product);
+                return false;
+            }
+            if (candidate == 0) {
+                table.products.set(slot, product);
+                table.keys.set(slot, key);
+                return true;
+            }
+            slot = (slot + 1) & table.mask;
+        }
+    }
+    
+    // Copies every entry into a table twice the size and publishes it, caller holds the lock
+    private Table grow(Table current) {
+        Table grown = new Table((current.mask + 1) * 2);
+        for (int slot = 0; slot <= current.mask; slot++) {
+            long key = current.keys.get(slot);
+            if (key != 0) {
+                insert(grown, key, current.products.get(slot));
+            }
+        }
+        grown.size = current.size;
+        table = grown;
+        return grown;
+    }
+    
+    private static int spread(long key) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32);
+    }
+}
\ No newline at end of file
@@ -13,6 +13,7 @@ import java.util.Scanner;
 import com.smartsupply.model.Inventory;
 import com.smartsupply.model.Order;
 import com.smartsupply.model.Product;
+import com.smartsupply.service.OrderStore;
 
 /**
  * Utility class for generating various reports
@@ -103,6 +104,43 @@ public class ReportGenerator {
         return report.toString();
     }
     
+    // Method to generate a day-by-day sales summary from the order store's daily totals
+    public static String generateSalesSummaryReport(OrderStore orderStore, Date startDate, Date endDate) {
+        StringBuilder report = new StringBuilder();
+        
+        report.append("======= SALES SUMMARY REPORT =======\n");
+        report.append("Period: ").append(DATE_FORMAT.format(startDate))
+              .append(" to ").append(DATE_FORMAT.format(endDate)).append("\n");
+        report.append("Report Date: ").append(DATE_FORMAT.format(new Date())).append("\n\n");
+        
+        report.append("DAILY SALES:\n");
+        report.append(String.format("%-15s %-10s %-10s %-15s\n", "Date", "Orders", "Items", "Total"));
+        report.append("------------------------------------------------------------------\n");
+        
+        double totalSales = 0.0;
+        long totalItems = 0;
+        int orderCount = 0;
+        
+        for (OrderStore.DailySales day : orderStore.getDailySales(startDate, endDate)) {
+            totalSales += day.getAmount();
+            totalItems += day.getItemCount();
+            orderCount += day.getOrderCount();
+            
+            report.append(String.format("%-15s %-10d %-10d $%-14.2f\n", 
+                                     day.getDay(), day.getOrderCount(), day.getItemCount(), day.getAmount()));
+        }
+        
+        report.append("------------------------------------------------------------------\n");
+        report.append(String.format("Orders: %d   Items: %d   Total Sales: $%.2f\n", 
+                                  orderCount, totalItems, totalSales));
+        
+        if (orderCount > 0) {
+            report.append(String.format("Average Order Value: $%.2f\n", totalSales / orderCount));
+        }
+        
+        return report.toString();
+    }
+    
     // Method to generate low stock alert report
     public static String generateLowStockReport(Inventory inventory) {
         StringBuilder report = new StringBuilder();
@@ -122,7 +160,7 @@ public class ReportGenerator {
             
             for (Product product : lowStockProducts) {
                 int stock = inventory.getStockCount(product);
-                int threshold = inventory.getReorderThresholds().getOrDefault(product, 0);
+                int threshold = inventory.getReorderThreshold(product);
                 
                 report.append(String.format("%-40s %-10d %-15d\n", 
                                           product.getName(), stock, threshold));